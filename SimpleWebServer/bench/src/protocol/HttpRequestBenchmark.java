@@ -0,0 +1,85 @@
+/*
+ * HttpRequestBenchmark.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing a request as browsers send them, from a stream that has all of it
+ * at hand, so that only the parser is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpRequestBenchmark {
+	private static final String CHROME = "GET /assets/css/site.min.css?v=1362 HTTP/1.1\r\n"
+			+ "Host: www.example.edu\r\n"
+			+ "Connection: keep-alive\r\n"
+			+ "sec-ch-ua: \"Chromium\";v=\"118\", \"Google Chrome\";v=\"118\", \"Not=A?Brand\";v=\"99\"\r\n"
+			+ "sec-ch-ua-mobile: ?0\r\n"
+			+ "User-Agent: Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/118.0.0.0 Safari/537.36\r\n"
+			+ "sec-ch-ua-platform: \"Windows\"\r\n"
+			+ "Accept: text/css,*/*;q=0.1\r\n"
+			+ "Sec-Fetch-Site: same-origin\r\n"
+			+ "Sec-Fetch-Mode: no-cors\r\n"
+			+ "Sec-Fetch-Dest: style\r\n"
+			+ "Referer: https://www.example.edu/courses/csse477/index.html\r\n"
+			+ "Accept-Encoding: gzip, deflate, br\r\n"
+			+ "Accept-Language: en-US,en;q=0.9,de;q=0.8\r\n"
+			+ "Cookie: _ga=GA1.2.1234567890.1382000000; session=8f14e45fceea167a5a36dedd4bea2543; theme=dark\r\n"
+			+ "If-None-Match: \"5c1-4e8f0b2a\"\r\n"
+			+ "If-Modified-Since: Fri, 18 Oct 2013 21:36:04 GMT\r\n"
+			+ "\r\n";
+
+	private static final String CURL = "GET /index.html HTTP/1.1\r\n"
+			+ "Host: localhost:8080\r\n"
+			+ "User-Agent: curl/7.88.1\r\n"
+			+ "Accept: */*\r\n"
+			+ "\r\n";
+
+	@Param({ "chrome", "curl" })
+	public String client;
+
+	private byte[] request;
+
+	@Setup
+	public void setUp() {
+		request = (client.equals("chrome") ? CHROME : CURL)
+				.getBytes(StandardCharsets.US_ASCII);
+	}
+
+	@Benchmark
+	public HttpRequest read() throws Exception {
+		return HttpRequest.read(new ByteArrayInputStream(request));
+	}
+}
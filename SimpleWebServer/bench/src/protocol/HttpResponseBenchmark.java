@@ -0,0 +1,104 @@
+/*
+ * HttpResponseBenchmark.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Creating and writing a file response, to a sink that throws the bytes
+ * away, so that the server side of a transfer is measured without a
+ * network. With a channel the file goes through
+ * {@link java.nio.channels.FileChannel#transferTo} as it does for sockets,
+ * without one it is copied through the stream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HttpResponseBenchmark {
+	/**
+	 * Counts what is written, so that nothing can be optimized away.
+	 */
+	private static class Sink extends OutputStream {
+		long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count += len;
+		}
+	}
+
+	@Param({ "1024", "65536", "4194304" })
+	public int length;
+
+	@Param({ "false", "true" })
+	public boolean channel;
+
+	private File file;
+	private Sink sink;
+	private WritableByteChannel sinkChannel;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = File.createTempFile("sws-bench", ".html");
+		byte[] content = new byte[length];
+		new Random(42).nextBytes(content);
+		Files.write(file.toPath(), content);
+		sink = new Sink();
+		sinkChannel = Channels.newChannel(sink);
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public void write(Blackhole blackhole) throws Exception {
+		HttpResponse response = HttpResponseFactory.create200OK(file,
+				file.lastModified(), length, "\"bench\"", Protocol.CLOSE);
+		response.write(sink, channel ? sinkChannel : null);
+		blackhole.consume(sink.count);
+	}
+}
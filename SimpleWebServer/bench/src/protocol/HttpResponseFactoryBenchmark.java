@@ -0,0 +1,87 @@
+/*
+ * HttpResponseFactoryBenchmark.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Building the responses the server sends most, without writing them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HttpResponseFactoryBenchmark {
+	private static final String ETAG = "\"5c1-4e8f0b2a\"";
+	private static final String CHALLENGE = "Digest realm=\"SimpleWebServer\", qop=\"auth\", "
+			+ "nonce=\"AAABQf7c3dkq8Zr3XJm0mJ2mCk9e1vXr0Yb7tQ\"";
+
+	private File file;
+	private long lastModified;
+	private long length;
+
+	@Setup
+	public void setUp() throws IOException {
+		file = File.createTempFile("sws-bench", ".css");
+		Files.write(file.toPath(), new byte[1473]);
+		lastModified = file.lastModified();
+		length = file.length();
+	}
+
+	@TearDown
+	public void tearDown() {
+		file.delete();
+	}
+
+	@Benchmark
+	public HttpResponse ok() {
+		return HttpResponseFactory.create200OK(file, lastModified, length,
+				ETAG, Protocol.CLOSE);
+	}
+
+	@Benchmark
+	public HttpResponse notModified() {
+		return HttpResponseFactory.create304NotModified(ETAG, Protocol.CLOSE);
+	}
+
+	@Benchmark
+	public HttpResponse notFound() {
+		return HttpResponseFactory.create404NotFound(Protocol.CLOSE);
+	}
+
+	@Benchmark
+	public HttpResponse unauthorized() {
+		return HttpResponseFactory.create401Unauthorized(CHALLENGE,
+				Protocol.CLOSE);
+	}
+}
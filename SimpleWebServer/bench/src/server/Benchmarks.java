@@ -0,0 +1,57 @@
+/*
+ * Benchmarks.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the JMH benchmarks of the request and response hot paths, always
+ * with the allocation profiler, so every result shows the bytes allocated
+ * per operation next to the time. The benchmarks are compiled against the
+ * server sources with the JMH annotation processor, e.g. from
+ * <tt>SimpleWebServer</tt>:
+ *
+ * <pre>
+ * javac -cp jmh-core.jar:jmh-generator-annprocess.jar -d bench/bin \
+ *     $(find src bench/src -name '*.java')
+ * java -cp bench/bin:jmh-core.jar:jopt-simple.jar:commons-math3.jar \
+ *     server.Benchmarks [JMH options, e.g. HttpRequest -f 1]
+ * </pre>
+ *
+ * The usual JMH options can be given, such as a benchmark name pattern.
+ */
+public class Benchmarks {
+	public static void main(String[] args) throws RunnerException,
+			CommandLineOptionException {
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,130 @@
+/*
+ * DigestAuthenticatorBenchmark.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Checking the Digest credentials of a request, as
+ * <tt>ConnectionHandler.authenticateUser</tt> does for every request that
+ * sends them. A nonce only accepts increasing counts, so the valid header is
+ * made anew before each call, outside the measurement; a wrong password
+ * can be sent over and over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class DigestAuthenticatorBenchmark {
+	private static final String USER = "bob";
+	private static final String PASSWORD = "secret";
+	private static final String METHOD = "GET";
+	private static final String URI = "/private/report.html";
+	private static final String CNONCE = "0a4f113b";
+
+	private File passwd;
+	private File permissions;
+	private SecuritySnapshot security;
+	private DigestAuthenticator authenticator;
+	private String nonce;
+	private long count;
+	private String valid;
+	private String wrongPassword;
+
+	@Setup
+	public void setUp() throws IOException, NoSuchAlgorithmException {
+		passwd = File.createTempFile("sws-bench", ".passwd");
+		permissions = File.createTempFile("sws-bench", ".permissions");
+		Files.write(passwd.toPath(),
+				(USER + " " + PASSWORD + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.write(permissions.toPath(),
+				("/private/**:" + USER + "\n").getBytes(StandardCharsets.UTF_8));
+		security = SecuritySnapshot.load(passwd, permissions);
+		authenticator = new DigestAuthenticator();
+
+		String challenge = authenticator.challenge(false);
+		int start = challenge.indexOf("nonce=\"") + 7;
+		nonce = challenge.substring(start, challenge.indexOf('"', start));
+		wrongPassword = authorization(DigestAuthenticator.ha1(USER, "wrong"),
+				Long.MAX_VALUE);
+	}
+
+	@Setup(Level.Invocation)
+	public void nextCount() throws NoSuchAlgorithmException {
+		valid = authorization(DigestAuthenticator.ha1(USER, PASSWORD), ++count);
+	}
+
+	@TearDown
+	public void tearDown() {
+		passwd.delete();
+		permissions.delete();
+	}
+
+	@Benchmark
+	public DigestAuthenticator.Verdict valid() {
+		return authenticator.verify(security, valid, METHOD, URI);
+	}
+
+	@Benchmark
+	public DigestAuthenticator.Verdict wrongPassword() {
+		return authenticator.verify(security, wrongPassword, METHOD, URI);
+	}
+
+	/**
+	 * Builds the Authorization field value a browser would send.
+	 */
+	private String authorization(String ha1, long count)
+			throws NoSuchAlgorithmException {
+		String nc = String.format("%08x", count);
+		String ha2 = md5(METHOD + ":" + URI);
+		String response = md5(ha1 + ":" + nonce + ":" + nc + ":" + CNONCE
+				+ ":auth:" + ha2);
+		return "Digest username=\"" + USER + "\", realm=\""
+				+ DigestAuthenticator.REALM + "\", nonce=\"" + nonce
+				+ "\", uri=\"" + URI + "\", qop=auth, nc=" + nc
+				+ ", cnonce=\"" + CNONCE + "\", response=\"" + response + "\"";
+	}
+
+	private static String md5(String s) throws NoSuchAlgorithmException {
+		byte[] digest = MessageDigest.getInstance("MD5").digest(
+				s.getBytes(StandardCharsets.UTF_8));
+		StringBuilder sb = new StringBuilder(32);
+		for (byte b : digest)
+			sb.append(String.format("%02x", b & 0xff));
+		return sb.toString();
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * RateLimiterBenchmark.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The rate limiter the selector thread runs for every readable connection,
+ * while it tracks the recent connections of many clients. The threshold is
+ * set so that nobody gets blacklisted, which would stop the client from
+ * being looked at.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class RateLimiterBenchmark {
+	@Param({ "10", "100", "1000" })
+	public int clients;
+
+	private Server server;
+	private InetAddress[] addresses;
+	private int next;
+
+	@Setup
+	public void setUp() throws IOException {
+		File root = Files.createTempDirectory("sws-bench").toFile();
+		server = new Server(root.getPath(), 8080, null);
+		server.setTimeThreshold(-1);
+
+		addresses = new InetAddress[clients];
+		for (int i = 0; i < clients; i++) {
+			addresses[i] = InetAddress.getByAddress(new byte[] { 10,
+					(byte) (i >> 16), (byte) (i >> 8), (byte) i });
+		}
+		// Fill the history of every client
+		for (int n = 0; n < server.getSampleSize(); n++) {
+			for (InetAddress address : addresses)
+				server.allowConnection(address);
+		}
+	}
+
+	@Benchmark
+	public boolean allowConnection() {
+		InetAddress address = addresses[next];
+		next = (next + 1) % addresses.length;
+		return server.allowConnection(address);
+	}
+}
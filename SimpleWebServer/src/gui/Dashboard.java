@@ -0,0 +1,263 @@
+/*
+ * Dashboard.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package gui;
+
+import java.awt.BorderLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.net.InetAddress;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.swing.BorderFactory;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.Timer;
+
+import server.LatencyHistogram;
+import server.Server;
+import server.ServerMetrics;
+
+/**
+ * Shows the load on a running {@link Server} as sparklines of the last two
+ * minutes: requests and bytes per second, p50 and p99 latency, the cache
+ * hit ratio, the open connections and the clients turned away most.
+ *
+ * A Swing timer takes a sample every second on the event dispatch thread.
+ * Everything sampled is read from the striped counters and lock-free
+ * histograms the workers record into, so the window never makes a worker
+ * wait, and a busy event dispatch thread only makes the timer skip a beat.
+ */
+public class Dashboard extends JPanel {
+	private static final long serialVersionUID = 1L;
+
+	private static final int INTERVAL = 1000; // milliseconds
+
+	/**
+	 * The number of samples the latency quantiles are taken over, so they
+	 * do not jump around at low load.
+	 */
+	private static final int LATENCY_SAMPLES = 5;
+
+	private static final int TOP_BLOCKED = 3;
+	private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS
+			.toNanos(1);
+
+	private final Timer timer;
+	private final Sparkline requests;
+	private final Sparkline bandwidth;
+	private final Sparkline p50;
+	private final Sparkline p99;
+	private final Sparkline hitRatio;
+	private final Sparkline connections;
+	private final JPanel blockedPanel;
+	private final Map<InetAddress, Sparkline> blocked;
+	private final Map<InetAddress, Long> lastBlocked;
+
+	private Server server;
+	private LatencyHistogram[] latencies;
+	private int latencyIndex;
+	private long lastTime;
+	private long lastRequests;
+	private long lastBytes;
+	private long lastHits;
+	private long lastLookups;
+
+	public Dashboard() {
+		super(new BorderLayout());
+		setBorder(BorderFactory.createTitledBorder("Load"));
+
+		requests = new Sparkline("Requests", "%.1f/s");
+		bandwidth = new Sparkline("Bandwidth", "%.1f KB/s");
+		p50 = new Sparkline("Latency p50", "%.2f ms");
+		p99 = new Sparkline("Latency p99", "%.2f ms");
+		hitRatio = new Sparkline("Cache hits", "%.0f%%");
+		connections = new Sparkline("Open connections", "%.0f");
+		JPanel charts = new JPanel(new GridLayout(0, 2, 5, 5));
+		charts.add(requests);
+		charts.add(bandwidth);
+		charts.add(p50);
+		charts.add(p99);
+		charts.add(hitRatio);
+		charts.add(connections);
+		add(charts, BorderLayout.CENTER);
+
+		blockedPanel = new JPanel(new GridLayout(0, 1, 5, 5));
+		blockedPanel.setBorder(BorderFactory
+				.createTitledBorder("Most blocked IPs"));
+		blockedPanel.add(new JLabel("None"));
+		add(blockedPanel, BorderLayout.SOUTH);
+		blocked = new LinkedHashMap<InetAddress, Sparkline>();
+		lastBlocked = new HashMap<InetAddress, Long>();
+
+		timer = new Timer(INTERVAL, new ActionListener() {
+			@Override
+			public void actionPerformed(ActionEvent e) {
+				sample();
+			}
+		});
+		timer.setCoalesce(true);
+	}
+
+	/**
+	 * Starts following a server, from an empty chart.
+	 *
+	 * @param server
+	 *            The server, just created or running.
+	 */
+	public void start(Server server) {
+		this.server = server;
+		ServerMetrics metrics = server.getMetrics();
+		lastTime = System.nanoTime();
+		lastRequests = metrics.getRequests();
+		lastBytes = metrics.getBytes();
+		lastHits = hits();
+		lastLookups = lastHits + misses();
+		latencies = new LatencyHistogram[LATENCY_SAMPLES];
+		latencyIndex = 0;
+		latencies[0] = copy(metrics.getLatency());
+
+		requests.clear();
+		bandwidth.clear();
+		p50.clear();
+		p99.clear();
+		hitRatio.clear();
+		connections.clear();
+		blocked.clear();
+		lastBlocked.clear();
+		blockedPanel.removeAll();
+		blockedPanel.add(new JLabel("None"));
+		blockedPanel.revalidate();
+		timer.start();
+	}
+
+	/**
+	 * Stops following the server, leaving the charts as they are.
+	 */
+	public void stop() {
+		timer.stop();
+		server = null;
+	}
+
+	private void sample() {
+		Server server = this.server;
+		if (server == null)
+			return;
+		ServerMetrics metrics = server.getMetrics();
+
+		long now = System.nanoTime();
+		double seconds = (now - lastTime) / 1e9;
+		lastTime = now;
+		if (seconds <= 0)
+			return;
+
+		long count = metrics.getRequests();
+		requests.add((count - lastRequests) / seconds);
+		lastRequests = count;
+
+		long bytes = metrics.getBytes();
+		bandwidth.add((bytes - lastBytes) / 1024.0 / seconds);
+		lastBytes = bytes;
+
+		// The quantiles of what was recorded over the last few samples
+		LatencyHistogram current = copy(metrics.getLatency());
+		int oldest = (latencyIndex + 1) % LATENCY_SAMPLES;
+		LatencyHistogram earlier = latencies[oldest] != null ? latencies[oldest]
+				: latencies[0];
+		LatencyHistogram recent = current.since(earlier);
+		latencyIndex = oldest;
+		latencies[latencyIndex] = current;
+		if (recent.getCount() == 0) {
+			p50.add(Double.NaN);
+			p99.add(Double.NaN);
+		} else {
+			p50.add(recent.getValueAtQuantile(0.5) / NANOS_PER_MILLI);
+			p99.add(recent.getValueAtQuantile(0.99) / NANOS_PER_MILLI);
+		}
+
+		long hits = hits();
+		long lookups = hits + misses();
+		hitRatio.add(lookups == lastLookups ? Double.NaN : 100.0
+				* (hits - lastHits) / (lookups - lastLookups));
+		lastHits = hits;
+		lastLookups = lookups;
+
+		connections.add(server.getOpenConnections());
+
+		sampleBlocked(metrics.getTopRejected(TOP_BLOCKED), seconds);
+	}
+
+	private void sampleBlocked(List<Map.Entry<InetAddress, Long>> top,
+			double seconds) {
+		boolean changed = top.size() != blocked.size();
+		for (Map.Entry<InetAddress, Long> entry : top) {
+			if (!blocked.containsKey(entry.getKey()))
+				changed = true;
+		}
+
+		if (changed) {
+			// Keep the history of those still at the top
+			Map<InetAddress, Sparkline> previous = new HashMap<InetAddress, Sparkline>(
+					blocked);
+			blocked.clear();
+			blockedPanel.removeAll();
+			for (Map.Entry<InetAddress, Long> entry : top) {
+				Sparkline line = previous.get(entry.getKey());
+				if (line == null)
+					line = new Sparkline(entry.getKey().getHostAddress(),
+							"%.1f/s");
+				blocked.put(entry.getKey(), line);
+				blockedPanel.add(line);
+			}
+			if (top.isEmpty())
+				blockedPanel.add(new JLabel("None"));
+			lastBlocked.keySet().retainAll(blocked.keySet());
+			blockedPanel.revalidate();
+		}
+
+		for (Map.Entry<InetAddress, Long> entry : top) {
+			Long last = lastBlocked.put(entry.getKey(), entry.getValue());
+			blocked.get(entry.getKey()).add(
+					last == null ? 0 : (entry.getValue() - last) / seconds);
+		}
+	}
+
+	private long hits() {
+		return server.getResourceResolver().getHits()
+				+ server.getContentCompressor().getHits();
+	}
+
+	private long misses() {
+		return server.getResourceResolver().getMisses()
+				+ server.getContentCompressor().getMisses();
+	}
+
+	private static LatencyHistogram copy(LatencyHistogram histogram) {
+		LatencyHistogram copy = new LatencyHistogram();
+		copy.add(histogram);
+		return copy;
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Sparkline.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package gui;
+
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+
+import javax.swing.JComponent;
+
+/**
+ * A small line chart of the latest values of one measurement, with its
+ * name and the newest value written over it. The chart is scaled to the
+ * largest value shown. Values are added and painted on the event dispatch
+ * thread only.
+ */
+public class Sparkline extends JComponent {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * How many values are shown, the oldest drop off the left.
+	 */
+	public static final int POINTS = 120;
+
+	private static final Color LINE = new Color(0x1f, 0x77, 0xb4);
+	private static final Color FILL = new Color(0x1f, 0x77, 0xb4, 0x30);
+
+	private final String title;
+	private final String format;
+	private final double[] values;
+	private int next;
+	private int count;
+
+	/**
+	 * @param title
+	 *            The name of the measurement.
+	 * @param format
+	 *            How to write a value, for {@link String#format}.
+	 */
+	public Sparkline(String title, String format) {
+		this.title = title;
+		this.format = format;
+		this.values = new double[POINTS];
+		setPreferredSize(new Dimension(250, 48));
+		setOpaque(true);
+		setBackground(Color.WHITE);
+	}
+
+	/**
+	 * Adds the newest value and schedules a repaint, which Swing merges
+	 * with any other pending one.
+	 *
+	 * @param value
+	 *            The value, or NaN if there is none for this interval.
+	 */
+	public void add(double value) {
+		values[next] = value;
+		next = (next + 1) % POINTS;
+		if (count < POINTS)
+			count++;
+		repaint();
+	}
+
+	/**
+	 * Forgets all values.
+	 */
+	public void clear() {
+		next = 0;
+		count = 0;
+		repaint();
+	}
+
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D) g.create();
+		int width = getWidth();
+		int height = getHeight();
+		g2.setColor(getBackground());
+		g2.fillRect(0, 0, width, height);
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+
+		double max = 0;
+		for (int i = 0; i < count; i++) {
+			double value = values[i];
+			if (!Double.isNaN(value) && value > max)
+				max = value;
+		}
+
+		int top = 16;
+		int chartHeight = height - top - 2;
+		if (count > 1 && max > 0 && chartHeight > 0) {
+			int[] xs = new int[count + 2];
+			int[] ys = new int[count + 2];
+			int points = 0;
+			int first = (next - count + POINTS) % POINTS;
+			for (int i = 0; i < count; i++) {
+				double value = values[(first + i) % POINTS];
+				if (Double.isNaN(value))
+					value = 0;
+				xs[points] = (width - 1) * (POINTS - count + i) / (POINTS - 1);
+				ys[points] = top + chartHeight
+						- (int) Math.round(value / max * chartHeight);
+				points++;
+			}
+			g2.setColor(LINE);
+			g2.drawPolyline(xs, ys, points);
+			xs[points] = xs[points - 1];
+			ys[points] = top + chartHeight;
+			xs[points + 1] = xs[0];
+			ys[points + 1] = top + chartHeight;
+			g2.setColor(FILL);
+			g2.fillPolygon(xs, ys, points + 2);
+		}
+
+		String latest = "-";
+		if (count > 0) {
+			double value = values[(next - 1 + POINTS) % POINTS];
+			if (!Double.isNaN(value))
+				latest = String.format(format, value);
+		}
+		g2.setColor(Color.DARK_GRAY);
+		g2.drawString(title, 2, 12);
+		g2.drawString(latest, width - g2.getFontMetrics().stringWidth(latest)
+				- 2, 12);
+		g2.dispose();
+	}
+}
@@ -41,10 +41,13 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
 import javax.swing.SpringLayout;
+import javax.swing.SwingUtilities;
 import javax.swing.WindowConstants;
 import javax.swing.border.EtchedBorder;
 
+import server.AddressList;
 import server.Server;
+import server.ServerListener;
 
 /**
  * The application window for the {@link Server}, where you can update some
@@ -52,7 +55,7 @@ import server.Server;
  * 
  * @author Chandan R. Rupakheti (rupakhet@rose-hulman.edu)
  */
-public class WebServer extends JFrame {
+public class WebServer extends JFrame implements ServerListener {
 	private static final long serialVersionUID = 5042579745743827174L;
 
 	private JPanel panelRunServer;
@@ -65,8 +68,7 @@ public class WebServer extends JFrame {
 	private JPanel panelInput;
 	private JButton butStartServer;
 	private JButton butStopServer;
-	private JLabel lblServiceRate;
-	private JTextField txtServiceRate;
+	private Dashboard dashboard;
 
 	private JList<InetAddress> whiteListView;
 	private JList<InetAddress> blackListView;
@@ -83,35 +85,42 @@ public class WebServer extends JFrame {
 	private DefaultListModel<InetAddress> blacklist;
 
 	private Server server;
-	private ServiceRateUpdater rateUpdater;
 
 	/**
-	 * For constantly updating the service rate in the GUI.
-	 * 
-	 * @author Chandan R. Rupakheti (rupakhet@rose-hulman.edu)
+	 * Shows the white and black list of the server, which may change on any
+	 * thread, in the list views.
 	 */
-	private class ServiceRateUpdater implements Runnable {
-		public boolean stop = false;
+	private class ListModelUpdater implements AddressList.Listener {
+		private final AddressList serverWhitelist;
 
-		public void run() {
-			while (!stop) {
-				// Poll if server is not null and server is still accepting
-				// connections
-				if (server != null && !server.isStopped()) {
-					double rate = server.getServiceRate();
-					if (rate == Double.MIN_VALUE)
-						WebServer.this.txtServiceRate.setText("Unknown");
-					else
-						WebServer.this.txtServiceRate.setText(Double
-								.toString(rate));
+		public ListModelUpdater(AddressList serverWhitelist) {
+			this.serverWhitelist = serverWhitelist;
+		}
+
+		@Override
+		public void addressAdded(final AddressList list,
+				final InetAddress address) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					DefaultListModel<InetAddress> model = modelOf(list);
+					if (!model.contains(address))
+						model.addElement(address);
 				}
+			});
+		}
 
-				// Poll at an interval of 500 milliseconds
-				try {
-					Thread.sleep(500);
-				} catch (Exception e) {
+		@Override
+		public void addressRemoved(final AddressList list,
+				final InetAddress address) {
+			SwingUtilities.invokeLater(new Runnable() {
+				public void run() {
+					modelOf(list).removeElement(address);
 				}
-			}
+			});
+		}
+
+		private DefaultListModel<InetAddress> modelOf(AddressList list) {
+			return list == serverWhitelist ? whitelist : blacklist;
 		}
 	}
 
@@ -154,9 +163,7 @@ public class WebServer extends JFrame {
 		this.butStartServer = new JButton("Start Simple Web Server");
 		this.butStopServer = new JButton("Stop Simple Web Server");
 		this.butStopServer.setEnabled(false);
-		this.lblServiceRate = new JLabel(
-				"Service Rate (Connections Serviced/Second)");
-		this.txtServiceRate = new JTextField("Unknown");
+		this.dashboard = new Dashboard();
 
 		// panelRunServer uses FlowLayout by default
 		this.panelRunServer.setBorder(BorderFactory
@@ -164,11 +171,9 @@ public class WebServer extends JFrame {
 		this.panelRunServer.setLayout(new SpringLayout());
 		this.panelRunServer.add(this.butStartServer);
 		this.panelRunServer.add(this.butStopServer);
-		this.panelRunServer.add(this.lblServiceRate);
-		this.panelRunServer.add(this.txtServiceRate);
 
 		// Compact the grid
-		SpringUtilities.makeCompactGrid(this.panelRunServer, 2, 2, 5, 5, 5, 5);
+		SpringUtilities.makeCompactGrid(this.panelRunServer, 1, 2, 5, 5, 5, 5);
 
 		whitelist = new DefaultListModel<InetAddress>();
 		blacklist = new DefaultListModel<InetAddress>();
@@ -211,7 +216,7 @@ public class WebServer extends JFrame {
 			@Override
 			public void actionPerformed(ActionEvent arg0) {
 				WebServer.this.server
-						.unWhitelistAddress(WebServer.this.blackListView
+						.unWhitelistAddress(WebServer.this.whiteListView
 								.getSelectedValue());
 
 			}
@@ -318,7 +323,10 @@ public class WebServer extends JFrame {
 
 		JPanel contentPane = (JPanel) this.getContentPane();
 		contentPane.add(this.panelInput, BorderLayout.NORTH);
-		contentPane.add(this.panelRunServer, BorderLayout.CENTER);
+		JPanel center = new JPanel(new BorderLayout());
+		center.add(this.panelRunServer, BorderLayout.NORTH);
+		center.add(this.dashboard, BorderLayout.CENTER);
+		contentPane.add(center, BorderLayout.CENTER);
 		contentPane.add(wbPanel, BorderLayout.SOUTH);
 
 		pack();
@@ -376,20 +384,26 @@ public class WebServer extends JFrame {
 
 				// Now run the server in non-gui thread
 				server = new Server(rootDirectory, port, WebServer.this);
-				server.setWhitelist(whitelist);
-				server.setBlacklist(blacklist);
+				ListModelUpdater updater = new ListModelUpdater(server
+						.getWhitelist());
+				whitelist.clear();
+				blacklist.clear();
+				for (InetAddress address : server.getWhitelist().toList())
+					whitelist.addElement(address);
+				for (InetAddress address : server.getBlacklist().toList())
+					blacklist.addElement(address);
+				server.getWhitelist().addListener(updater);
+				server.getBlacklist().addListener(updater);
 				WebServer.this.updateView();
 
-				rateUpdater = new ServiceRateUpdater();
-
 				// Disable widgets
 				WebServer.this.disableWidgets();
 
 				// Now run the server in a separate thread
 				new Thread(server).start();
 
-				// Also run the service rate updater thread
-				new Thread(rateUpdater).start();
+				// Also follow its load
+				WebServer.this.dashboard.start(server);
 			}
 		});
 
@@ -398,8 +412,7 @@ public class WebServer extends JFrame {
 			public void actionPerformed(ActionEvent e) {
 				if (server != null && !server.isStopped())
 					server.stop();
-				if (rateUpdater != null)
-					rateUpdater.stop = true;
+				WebServer.this.dashboard.stop();
 				WebServer.this.enableWidgets();
 				WebServer.this.lblSampleSize.setText("N/A");
 				WebServer.this.lblThreshold.setText("N/A");
@@ -411,8 +424,7 @@ public class WebServer extends JFrame {
 			public void windowClosing(WindowEvent e) {
 				if (server != null && !server.isStopped())
 					server.stop();
-				if (rateUpdater != null)
-					rateUpdater.stop = true;
+				WebServer.this.dashboard.stop();
 			}
 		});
 	}
@@ -436,6 +448,18 @@ public class WebServer extends JFrame {
 		this.butStopServer.setEnabled(false);
 	}
 
+	/**
+	 * Shows why the server failed, on the event dispatch thread.
+	 */
+	@Override
+	public void serverFailed(final Exception e) {
+		SwingUtilities.invokeLater(new Runnable() {
+			public void run() {
+				showSocketException(e);
+			}
+		});
+	}
+
 	/**
 	 * For displaying exception.
 	 * 
@@ -448,9 +472,7 @@ public class WebServer extends JFrame {
 			this.server.stop();
 		this.server = null;
 
-		if (this.rateUpdater != null)
-			this.rateUpdater.stop = true;
-		this.rateUpdater = null;
+		this.dashboard.stop();
 		this.enableWidgets();
 	}
 
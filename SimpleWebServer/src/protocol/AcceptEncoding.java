@@ -0,0 +1,94 @@
+/*
+ * AcceptEncoding.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+/**
+ * Content-coding negotiation for the <tt>Accept-Encoding</tt> header field.
+ */
+public class AcceptEncoding {
+	/**
+	 * Picks the content-coding to use for a response.
+	 *
+	 * @param field
+	 *            The <tt>Accept-Encoding</tt> field value, may be null.
+	 * @param supported
+	 *            The codings we can produce, most preferred first.
+	 * @return The supported coding with the highest quality value, ties going
+	 *         to the one supported earlier, or null if the representation
+	 *         should be sent as is.
+	 */
+	public static String negotiate(String field, String[] supported) {
+		if (field == null)
+			return null;
+
+		float[] quality = new float[supported.length];
+		float wildcard = -1;
+		int start = 0;
+		while (start < field.length()) {
+			int end = field.indexOf(',', start);
+			if (end < 0)
+				end = field.length();
+			String element = field.substring(start, end);
+			start = end + 1;
+
+			float q = 1;
+			int semicolon = element.indexOf(';');
+			if (semicolon >= 0) {
+				q = parseQuality(element.substring(semicolon + 1));
+				element = element.substring(0, semicolon);
+			}
+			element = element.trim();
+
+			if (element.equals("*")) {
+				wildcard = q;
+				continue;
+			}
+			for (int i = 0; i < supported.length; i++) {
+				if (supported[i].equalsIgnoreCase(element))
+					quality[i] = q > 0 ? q : -1;
+			}
+		}
+
+		String best = null;
+		float bestQuality = 0;
+		for (int i = 0; i < supported.length; i++) {
+			// Codings not listed are acceptable through the wildcard only
+			float q = quality[i] == 0 ? wildcard : quality[i];
+			if (q > bestQuality) {
+				best = supported[i];
+				bestQuality = q;
+			}
+		}
+		return best;
+	}
+
+	private static float parseQuality(String parameters) {
+		parameters = parameters.trim();
+		if (!parameters.startsWith("q=") && !parameters.startsWith("Q="))
+			return 1;
+		try {
+			return Float.parseFloat(parameters.substring(2).trim());
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * BufferPool.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A bounded pool of equally sized byte arrays, so that streaming a response
+ * does not allocate a fresh buffer per request. When the pool is empty a new
+ * array is allocated, and arrays returned to a full pool are simply dropped.
+ */
+public class BufferPool {
+	private static final BufferPool DEFAULT = new BufferPool(
+			Protocol.CHUNK_LENGTH, 64);
+
+	private final int size;
+	private final BlockingQueue<byte[]> free;
+
+	/**
+	 * @param size
+	 *            The length of every buffer.
+	 * @param capacity
+	 *            The maximum number of idle buffers kept.
+	 */
+	public BufferPool(int size, int capacity) {
+		this.size = size;
+		this.free = new ArrayBlockingQueue<byte[]>(capacity);
+	}
+
+	/**
+	 * Gets the pool of {@link Protocol#CHUNK_LENGTH} sized buffers.
+	 *
+	 * @return the pool
+	 */
+	public static BufferPool getDefault() {
+		return DEFAULT;
+	}
+
+	/**
+	 * Gets the length of the buffers in this pool.
+	 *
+	 * @return the length
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Takes a buffer out of the pool.
+	 *
+	 * @return a buffer, with arbitrary content
+	 */
+	public byte[] acquire() {
+		byte[] buffer = free.poll();
+		return buffer != null ? buffer : new byte[size];
+	}
+
+	/**
+	 * Returns a buffer to the pool. It must not be used afterwards.
+	 *
+	 * @param buffer
+	 *            A buffer taken from this pool.
+	 */
+	public void release(byte[] buffer) {
+		if (buffer.length == size)
+			free.offer(buffer);
+	}
+}
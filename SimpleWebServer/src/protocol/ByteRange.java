@@ -0,0 +1,167 @@
+/*
+ * ByteRange.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A satisfiable byte range of a representation, as requested with the
+ * <tt>Range</tt> header field. Both ends are inclusive.
+ */
+public class ByteRange {
+	/**
+	 * More ranges than this in one request are treated as abuse and the whole
+	 * representation is sent instead.
+	 */
+	public static final int MAX_RANGES = 16;
+
+	private static final String UNIT = "bytes=";
+
+	private final long first;
+	private final long last;
+
+	public ByteRange(long first, long last) {
+		this.first = first;
+		this.last = last;
+	}
+
+	public long getFirst() {
+		return first;
+	}
+
+	public long getLast() {
+		return last;
+	}
+
+	public long length() {
+		return last - first + 1;
+	}
+
+	/**
+	 * The value of the <tt>Content-Range</tt> header field for this range.
+	 *
+	 * @param total
+	 *            The length of the complete representation.
+	 * @return e.g. <tt>bytes 0-499/1234</tt>
+	 */
+	public String toContentRange(long total) {
+		return "bytes " + first + "-" + last + "/" + total;
+	}
+
+	/**
+	 * Parses a <tt>Range</tt> field value against a representation of the
+	 * given length. Ranges are sorted, and overlapping or adjacent ones are
+	 * merged, so that a client cannot make us send the same bytes twice.
+	 *
+	 * @param field
+	 *            The field value, e.g. <tt>bytes=0-99,200-,-500</tt>.
+	 * @param length
+	 *            The length of the representation.
+	 * @return The satisfiable ranges, an empty list if none is satisfiable,
+	 *         or null if the field is malformed or asks for too many ranges
+	 *         and must be ignored.
+	 */
+	public static List<ByteRange> parse(String field, long length) {
+		field = field.trim();
+		if (!field.regionMatches(true, 0, UNIT, 0, UNIT.length()))
+			return null;
+
+		List<ByteRange> ranges = new ArrayList<ByteRange>();
+		int count = 0;
+		int start = UNIT.length();
+		while (start <= field.length()) {
+			int end = field.indexOf(',', start);
+			if (end < 0)
+				end = field.length();
+			String spec = field.substring(start, end).trim();
+			start = end + 1;
+			if (spec.isEmpty())
+				continue;
+			if (++count > MAX_RANGES)
+				return null;
+
+			int dash = spec.indexOf('-');
+			if (dash < 0)
+				return null;
+			long first, last;
+			try {
+				if (dash == 0) {
+					// Suffix range: the last n bytes
+					long suffix = Long.parseLong(spec.substring(1));
+					if (suffix == 0)
+						continue;
+					first = Math.max(0, length - suffix);
+					last = length - 1;
+				} else {
+					first = Long.parseLong(spec.substring(0, dash));
+					if (dash == spec.length() - 1) {
+						last = length - 1;
+					} else {
+						last = Long.parseLong(spec.substring(dash + 1));
+						if (last < first)
+							return null;
+						last = Math.min(last, length - 1);
+					}
+				}
+			} catch (NumberFormatException e) {
+				return null;
+			}
+			if (first < 0)
+				return null;
+			if (first < length)
+				ranges.add(new ByteRange(first, last));
+		}
+		if (count == 0)
+			return null;
+
+		return coalesce(ranges);
+	}
+
+	private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+		if (ranges.size() < 2)
+			return ranges;
+
+		Collections.sort(ranges, new Comparator<ByteRange>() {
+			@Override
+			public int compare(ByteRange a, ByteRange b) {
+				return Long.compare(a.first, b.first);
+			}
+		});
+		List<ByteRange> merged = new ArrayList<ByteRange>();
+		ByteRange current = ranges.get(0);
+		for (int i = 1; i < ranges.size(); i++) {
+			ByteRange next = ranges.get(i);
+			if (next.first <= current.last + 1) {
+				current = new ByteRange(current.first, Math.max(current.last,
+						next.last));
+			} else {
+				merged.add(current);
+				current = next;
+			}
+		}
+		merged.add(current);
+		return merged;
+	}
+}
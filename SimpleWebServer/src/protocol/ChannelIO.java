@@ -0,0 +1,215 @@
+/*
+ * ChannelIO.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channel;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Reads from and writes to channels that may be in non-blocking mode. The
+ * server hands non-blocking socket channels to its worker threads, where a
+ * write may accept only part of the data, or none at all while the socket
+ * buffer is full, and a read may find no data yet. These helpers park the
+ * worker on a selector of its own until the socket is ready instead of
+ * spinning.
+ */
+public class ChannelIO {
+	/**
+	 * How long to wait for a socket to accept more data before giving up,
+	 * unless configured otherwise.
+	 */
+	public static final long WRITE_TIMEOUT = 30000; // milliseconds
+
+	/**
+	 * How long to wait for more data from a socket before giving up, unless
+	 * configured otherwise.
+	 */
+	public static final long READ_TIMEOUT = 30000; // milliseconds
+
+	private static final ThreadLocal<Selector> SELECTORS = new ThreadLocal<Selector>();
+	private static final ThreadLocal<long[]> TIMEOUTS = new ThreadLocal<long[]>() {
+		@Override
+		protected long[] initialValue() {
+			return new long[] { READ_TIMEOUT, WRITE_TIMEOUT };
+		}
+	};
+
+	/**
+	 * Sets how long the calling thread waits for a socket, from the next wait
+	 * on. A worker sets them at the start of every request, so that a
+	 * request keeps the timeouts it started with.
+	 *
+	 * @param readTimeout
+	 *            Milliseconds to wait for more data from a socket.
+	 * @param writeTimeout
+	 *            Milliseconds to wait for a socket to accept more data.
+	 */
+	public static void setTimeouts(long readTimeout, long writeTimeout) {
+		long[] timeouts = TIMEOUTS.get();
+		timeouts[0] = readTimeout;
+		timeouts[1] = writeTimeout;
+	}
+
+	/**
+	 * Writes all remaining bytes of the buffer.
+	 *
+	 * @param channel
+	 *            The channel to write to.
+	 * @param buffer
+	 *            The data, consumed by this call.
+	 * @throws IOException
+	 *             If writing fails or times out.
+	 */
+	public static void write(WritableByteChannel channel, ByteBuffer buffer)
+			throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.write(buffer) == 0)
+				await(channel, SelectionKey.OP_WRITE);
+		}
+	}
+
+	/**
+	 * Reads some bytes into the buffer, waiting for data if there is none
+	 * yet.
+	 *
+	 * @param channel
+	 *            The channel to read from.
+	 * @param buffer
+	 *            The buffer to read into.
+	 * @return The number of bytes read, -1 at the end of the stream, 0 only
+	 *         if the buffer is full.
+	 * @throws IOException
+	 *             If reading fails or times out.
+	 */
+	public static int read(ReadableByteChannel channel, ByteBuffer buffer)
+			throws IOException {
+		if (!buffer.hasRemaining())
+			return 0;
+		while (true) {
+			int bytesRead = channel.read(buffer);
+			if (bytesRead != 0)
+				return bytesRead;
+			await(channel, SelectionKey.OP_READ);
+		}
+	}
+
+	/**
+	 * Moves bytes from a channel into a region of a file using
+	 * {@link FileChannel#transferFrom}, so they never pass through the Java
+	 * heap.
+	 *
+	 * @param channel
+	 *            The channel to receive from.
+	 * @param file
+	 *            The file to write to.
+	 * @param position
+	 *            The position in the file of the first byte.
+	 * @param count
+	 *            The number of bytes to receive.
+	 * @throws IOException
+	 *             If the stream ends early, or if reading fails or times out.
+	 */
+	public static void receive(ReadableByteChannel channel, FileChannel file,
+			long position, long count) throws IOException {
+		boolean ready = false;
+		while (count > 0) {
+			long received = file.transferFrom(channel, position, count);
+			if (received == 0) {
+				// Nothing even though it was readable means end of stream
+				if (ready)
+					throw new EOFException("Stream ended before the body");
+				await(channel, SelectionKey.OP_READ);
+				ready = true;
+				continue;
+			}
+			ready = false;
+			position += received;
+			count -= received;
+		}
+	}
+
+	/**
+	 * Sends a region of a file using {@link FileChannel#transferTo}, which
+	 * lets the operating system copy the data without it passing through the
+	 * Java heap.
+	 *
+	 * @param file
+	 *            The file to send from.
+	 * @param position
+	 *            The first byte to send.
+	 * @param count
+	 *            The number of bytes to send.
+	 * @param channel
+	 *            The channel to send to.
+	 * @throws IOException
+	 *             If the file got shorter, or if writing fails or times out.
+	 */
+	public static void transfer(FileChannel file, long position, long count,
+			WritableByteChannel channel) throws IOException {
+		while (count > 0) {
+			long sent = file.transferTo(position, count, channel);
+			if (sent == 0) {
+				if (position >= file.size())
+					throw new EOFException("File truncated while sending");
+				await(channel, SelectionKey.OP_WRITE);
+				continue;
+			}
+			position += sent;
+			count -= sent;
+		}
+	}
+
+	private static void await(Channel channel, int op) throws IOException {
+		if (!(channel instanceof SelectableChannel)
+				|| ((SelectableChannel) channel).isBlocking()) {
+			Thread.yield();
+			return;
+		}
+
+		Selector selector = SELECTORS.get();
+		if (selector == null) {
+			selector = Selector.open();
+			SELECTORS.set(selector);
+		}
+		long timeout = TIMEOUTS.get()[op == SelectionKey.OP_READ ? 0 : 1];
+		SelectionKey key = ((SelectableChannel) channel).register(selector, op);
+		try {
+			if (selector.select(timeout) == 0)
+				throw new SocketTimeoutException(
+						op == SelectionKey.OP_READ ? "Read timed out"
+								: "Write timed out");
+		} finally {
+			key.cancel();
+			// Flush the cancelled key so the channel can be registered again
+			selector.selectNow();
+		}
+	}
+}
@@ -0,0 +1,178 @@
+/*
+ * ChunkedOutputStream.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * Writes data in the chunked transfer coding. Data is collected in a pooled
+ * buffer that has room for the chunk size line in front of the data and the
+ * CRLF behind it, so every chunk goes out in a single write.
+ *
+ * Closing this stream does not end the body, {@link #finish(Map)} does.
+ * That way a body can be wrapped in e.g. a compressing stream which is
+ * closed as usual.
+ */
+public class ChunkedOutputStream extends OutputStream {
+	/**
+	 * Room for the size in hex and its CRLF, enough for any int.
+	 */
+	private static final int HEAD_ROOM = 10;
+	private static final byte[] HEX = "0123456789abcdef".getBytes();
+
+	private final OutputStream out;
+	private final BufferPool pool;
+	private byte[] buffer;
+	private final int limit;
+	private int count;
+
+	/**
+	 * @param out
+	 *            The stream to write the chunks to.
+	 */
+	public ChunkedOutputStream(OutputStream out) {
+		this(out, BufferPool.getDefault());
+	}
+
+	/**
+	 * @param out
+	 *            The stream to write the chunks to.
+	 * @param pool
+	 *            The pool to take the buffer from.
+	 */
+	public ChunkedOutputStream(OutputStream out, BufferPool pool) {
+		this.out = out;
+		this.pool = pool;
+		this.buffer = pool.acquire();
+		this.limit = buffer.length - 2;
+		this.count = HEAD_ROOM;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureOpen();
+		if (count == limit)
+			writeChunk();
+		buffer[count++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		while (len > 0) {
+			if (count == limit)
+				writeChunk();
+			int n = Math.min(len, limit - count);
+			System.arraycopy(b, off, buffer, count, n);
+			count += n;
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Sends what is buffered as a chunk of its own, and flushes.
+	 */
+	@Override
+	public void flush() throws IOException {
+		ensureOpen();
+		writeChunk();
+		out.flush();
+	}
+
+	/**
+	 * Does nothing, see {@link #finish(Map)}.
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * Sends what is buffered, the last chunk and the trailer section, then
+	 * returns the buffer to the pool. Nothing can be written afterwards.
+	 *
+	 * @param trailers
+	 *            The trailer fields, may be null or empty.
+	 * @throws IOException
+	 *             If writing fails.
+	 */
+	public void finish(Map<String, String> trailers) throws IOException {
+		ensureOpen();
+		try {
+			writeChunk();
+
+			StringBuilder sb = new StringBuilder();
+			sb.append('0').append(Protocol.CRLF);
+			if (trailers != null) {
+				for (Map.Entry<String, String> entry : trailers.entrySet()) {
+					sb.append(entry.getKey()).append(Protocol.SEPERATOR)
+							.append(Protocol.SPACE).append(entry.getValue())
+							.append(Protocol.CRLF);
+				}
+			}
+			sb.append(Protocol.CRLF);
+			out.write(sb.toString().getBytes());
+		} finally {
+			pool.release(buffer);
+			buffer = null;
+		}
+	}
+
+	/**
+	 * Returns the buffer to the pool without ending the body, for when the
+	 * body could not be written in full. Does nothing after
+	 * {@link #finish(Map)}.
+	 */
+	public void release() {
+		if (buffer != null) {
+			pool.release(buffer);
+			buffer = null;
+		}
+	}
+
+	private void writeChunk() throws IOException {
+		int length = count - HEAD_ROOM;
+		if (length == 0)
+			return; // a zero length chunk would end the body
+
+		// The size goes right in front of the data
+		int start = HEAD_ROOM;
+		buffer[--start] = Protocol.LF;
+		buffer[--start] = Protocol.CR;
+		do {
+			buffer[--start] = HEX[length & 0xf];
+			length >>>= 4;
+		} while (length != 0);
+		buffer[count++] = Protocol.CR;
+		buffer[count++] = Protocol.LF;
+
+		out.write(buffer, start, count - start);
+		count = HEAD_ROOM;
+	}
+
+	private void ensureOpen() throws IOException {
+		if (buffer == null)
+			throw new IOException("Chunked body already finished");
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * EntityTag.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+/**
+ * Helpers for entity tags as used by the <tt>ETag</tt>, <tt>If-None-Match</tt>
+ * and <tt>If-Range</tt> header fields.
+ */
+public class EntityTag {
+	private static final String WEAK_PREFIX = "W/";
+
+	/**
+	 * Builds a strong entity tag from the identity, modification time and size
+	 * of a file, e.g. <tt>"1f2e-18a3c4d5e6f-400"</tt>.
+	 *
+	 * @param identity
+	 *            Something that changes when the file is replaced, e.g. a hash
+	 *            of its inode.
+	 * @param lastModified
+	 *            The modification time in milliseconds.
+	 * @param length
+	 *            The size in bytes.
+	 * @return The quoted entity tag.
+	 */
+	public static String create(int identity, long lastModified, long length) {
+		return "\"" + Integer.toHexString(identity) + "-"
+				+ Long.toHexString(lastModified) + "-"
+				+ Long.toHexString(length) + "\"";
+	}
+
+	/**
+	 * Checks an <tt>If-None-Match</tt> field value against the current tag
+	 * using the weak comparison, i.e. ignoring any <tt>W/</tt> prefix.
+	 *
+	 * @param field
+	 *            The field value, a list of tags or <tt>*</tt>.
+	 * @param etag
+	 *            The current tag of the resource.
+	 * @return true if any listed tag matches
+	 */
+	public static boolean matchesAny(String field, String etag) {
+		if (etag == null)
+			return false;
+		field = field.trim();
+		if (field.equals("*"))
+			return true;
+
+		String opaque = stripWeak(etag);
+		int start = 0;
+		while (start < field.length()) {
+			int end = field.indexOf(',', start);
+			if (end < 0)
+				end = field.length();
+			String tag = field.substring(start, end).trim();
+			if (stripWeak(tag).equals(opaque))
+				return true;
+			start = end + 1;
+		}
+		return false;
+	}
+
+	/**
+	 * Compares two tags using the strong comparison: both must be strong and
+	 * identical.
+	 *
+	 * @param tag
+	 *            A tag from the request.
+	 * @param etag
+	 *            The current tag of the resource.
+	 * @return true if they are strongly equal
+	 */
+	public static boolean strongEquals(String tag, String etag) {
+		if (tag == null || etag == null)
+			return false;
+		tag = tag.trim();
+		return !tag.startsWith(WEAK_PREFIX) && !etag.startsWith(WEAK_PREFIX)
+				&& tag.equals(etag);
+	}
+
+	private static String stripWeak(String tag) {
+		return tag.startsWith(WEAK_PREFIX) ? tag.substring(2) : tag;
+	}
+}
@@ -0,0 +1,272 @@
+/*
+ * HttpDate.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+/**
+ * Formats and parses HTTP dates without {@link java.text.SimpleDateFormat},
+ * which is neither thread-safe nor cheap to create. Dates are always written
+ * as IMF-fixdate, e.g. <tt>Sun, 06 Nov 1994 08:49:37 GMT</tt>, and read in
+ * that format as well as the two obsolete ones a recipient must accept: RFC
+ * 850 (<tt>Sunday, 06-Nov-94 08:49:37 GMT</tt>) and asctime
+ * (<tt>Sun Nov  6 08:49:37 1994</tt>).
+ *
+ * HTTP dates have a resolution of one second, so the formatted current date
+ * is kept until the second changes, and recently parsed field values are
+ * remembered since clients tend to send back the same few dates over and over.
+ * All methods are safe to call from any thread.
+ */
+public class HttpDate {
+	private static final String[] DAYS = { "Thu", "Fri", "Sat", "Sun", "Mon",
+			"Tue", "Wed" };
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr",
+			"May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+	private static final int PARSE_CACHE_SIZE = 64; // a power of two
+
+	/**
+	 * An immutable pair, so that the caches can be read and replaced without
+	 * locking.
+	 */
+	private static class Entry {
+		final String text;
+		final long millis;
+
+		Entry(String text, long millis) {
+			this.text = text;
+			this.millis = millis;
+		}
+	}
+
+	private static volatile Entry current = new Entry(format(0), 0);
+	private static final Entry[] parsed = new Entry[PARSE_CACHE_SIZE];
+
+	/**
+	 * Gets the current date formatted for the <tt>Date</tt> header field.
+	 *
+	 * @return the current date as IMF-fixdate
+	 */
+	public static String now() {
+		long second = System.currentTimeMillis() / 1000;
+		Entry entry = current;
+		if (entry.millis != second) {
+			entry = new Entry(format(second * 1000), second);
+			current = entry;
+		}
+		return entry.text;
+	}
+
+	/**
+	 * Formats a point in time as IMF-fixdate.
+	 *
+	 * @param millis
+	 *            Milliseconds since the epoch.
+	 * @return the formatted date
+	 */
+	public static String format(long millis) {
+		long seconds = Math.floorDiv(millis, 1000L);
+		long days = Math.floorDiv(seconds, 86400L);
+		int secondOfDay = (int) (seconds - days * 86400L);
+
+		// Civil date from days since the epoch, see
+		// http://howardhinnant.github.io/date_algorithms.html
+		long z = days + 719468;
+		long era = Math.floorDiv(z, 146097L);
+		int doe = (int) (z - era * 146097);
+		int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		int mp = (5 * doy + 2) / 153;
+		int day = doy - (153 * mp + 2) / 5 + 1;
+		int month = mp < 10 ? mp + 3 : mp - 9;
+		long year = yoe + era * 400 + (month <= 2 ? 1 : 0);
+
+		char[] buf = new char[29];
+		copy(DAYS[(int) Math.floorMod(days, 7L)], buf, 0);
+		buf[3] = ',';
+		buf[4] = ' ';
+		two(day, buf, 5);
+		buf[7] = ' ';
+		copy(MONTHS[month - 1], buf, 8);
+		buf[11] = ' ';
+		two((int) (year / 100), buf, 12);
+		two((int) (year % 100), buf, 14);
+		buf[16] = ' ';
+		two(secondOfDay / 3600, buf, 17);
+		buf[19] = ':';
+		two(secondOfDay / 60 % 60, buf, 20);
+		buf[22] = ':';
+		two(secondOfDay % 60, buf, 23);
+		copy(" GMT", buf, 25);
+		return new String(buf);
+	}
+
+	/**
+	 * Parses a date in any of the three HTTP date formats.
+	 *
+	 * @param text
+	 *            The field value, may be null.
+	 * @return Milliseconds since the epoch, or -1 if the value is missing or
+	 *         not a valid date.
+	 */
+	public static long parse(String text) {
+		if (text == null)
+			return -1;
+
+		int slot = text.hashCode() & (PARSE_CACHE_SIZE - 1);
+		Entry entry = parsed[slot];
+		if (entry != null && entry.text.equals(text))
+			return entry.millis;
+
+		long millis = parseUncached(text);
+		parsed[slot] = new Entry(text, millis);
+		return millis;
+	}
+
+	/**
+	 * Checks a file against an <tt>If-Modified-Since</tt> date. HTTP dates
+	 * have no fraction of a second, so only whole seconds are compared.
+	 *
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param since
+	 *            The parsed field value in milliseconds.
+	 * @return true if the file was not modified after the date
+	 */
+	public static boolean notModifiedSince(long lastModified, long since) {
+		return since >= 0
+				&& Math.floorDiv(lastModified, 1000L) <= Math.floorDiv(since,
+						1000L);
+	}
+
+	private static long parseUncached(String s) {
+		// The three formats differ in separators, the order of the fields
+		// and the year digits, so collect the numbers in order and note
+		// whether the month came before any of them (asctime) or not
+		int[] numbers = new int[5];
+		int[] digits = new int[5];
+		int count = 0;
+		int month = -1;
+		boolean monthFirst = false;
+
+		int i = 0;
+		int length = s.length();
+		while (i < length) {
+			char c = s.charAt(i);
+			if (c >= '0' && c <= '9') {
+				if (count == numbers.length)
+					return -1;
+				int value = 0;
+				int start = i;
+				while (i < length && (c = s.charAt(i)) >= '0' && c <= '9'
+						&& i - start < 4) {
+					value = value * 10 + (c - '0');
+					i++;
+				}
+				digits[count] = i - start;
+				numbers[count++] = value;
+			} else if (Character.isLetter(c)) {
+				int start = i;
+				while (i < length && Character.isLetter(s.charAt(i)))
+					i++;
+				if (i - start == 3 && month < 0) {
+					for (int m = 0; m < MONTHS.length; m++) {
+						if (s.regionMatches(true, start, MONTHS[m], 0, 3)) {
+							month = m;
+							monthFirst = count == 0;
+							break;
+						}
+					}
+				}
+			} else if (c == ' ' || c == ',' || c == '-' || c == ':') {
+				i++;
+			} else {
+				return -1;
+			}
+		}
+		if (count != 5 || month < 0)
+			return -1;
+
+		int day, year, yearDigits, hour, minute, second;
+		if (monthFirst) {
+			// asctime: day hh:mm:ss year
+			day = numbers[0];
+			hour = numbers[1];
+			minute = numbers[2];
+			second = numbers[3];
+			year = numbers[4];
+			yearDigits = digits[4];
+		} else {
+			// IMF-fixdate and RFC 850: day year hh:mm:ss
+			day = numbers[0];
+			year = numbers[1];
+			yearDigits = digits[1];
+			hour = numbers[2];
+			minute = numbers[3];
+			second = numbers[4];
+		}
+
+		if (yearDigits == 2) {
+			// RFC 7231: a two digit year more than 50 years in the future is
+			// the most recent past year with the same last two digits
+			int current = currentYear();
+			year += current - current % 100;
+			if (year > current + 50)
+				year -= 100;
+		} else if (yearDigits != 4) {
+			return -1;
+		}
+		if (day < 1 || day > 31 || hour > 23 || minute > 59 || second > 60)
+			return -1;
+
+		return (daysFromCivil(year, month + 1, day) * 86400L + hour * 3600
+				+ minute * 60 + Math.min(second, 59)) * 1000L;
+	}
+
+	/**
+	 * The current year, read off the cached <tt>Date</tt> value.
+	 */
+	private static int currentYear() {
+		String now = now();
+		int year = 0;
+		for (int i = 12; i < 16; i++)
+			year = year * 10 + now.charAt(i) - '0';
+		return year;
+	}
+
+	private static long daysFromCivil(int year, int month, int day) {
+		long y = month <= 2 ? year - 1 : year;
+		long era = Math.floorDiv(y, 400L);
+		int yoe = (int) (y - era * 400);
+		int doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day
+				- 1;
+		int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	private static void two(int value, char[] buf, int at) {
+		buf[at] = (char) ('0' + value / 10);
+		buf[at + 1] = (char) ('0' + value % 10);
+	}
+
+	private static void copy(String s, char[] buf, int at) {
+		s.getChars(0, s.length(), buf, at);
+	}
+}
@@ -22,9 +22,8 @@
  
 package protocol;
 
-import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -36,6 +35,11 @@ import java.util.StringTokenizer;
  * @author Chandan R. Rupakheti (rupakhet@rose-hulman.edu)
  */
 public class HttpRequest {
+	/**
+	 * The longest request or header line we accept.
+	 */
+	public static final int MAX_LINE_LENGTH = 8192;
+	
 	private String method;
 	private String uri;
 	private String version;
@@ -83,7 +87,9 @@ public class HttpRequest {
 
 	/**
 	 * Reads raw data from the supplied input stream and constructs a 
-	 * <tt>HttpRequest</tt> object out of the raw data.
+	 * <tt>HttpRequest</tt> object out of the raw data. The stream is read up
+	 * to the end of the header only, so that a body can be read from it
+	 * afterwards.
 	 * 
 	 * @param inputStream The input stream to read from.
 	 * @return A <tt>HttpRequest</tt> object.
@@ -94,11 +100,8 @@ public class HttpRequest {
 		// We will fill this object with the data from input stream and return it
 		HttpRequest request = new HttpRequest();
 		
-		InputStreamReader inStreamReader = new InputStreamReader(inputStream);
-		BufferedReader reader = new BufferedReader(inStreamReader);
-		
 		//First Request Line: GET /somedir/page.html HTTP/1.1
-		String line = reader.readLine(); // A line ends with either a \r, or a \n, or both
+		String line = readLine(inputStream); // A line ends with either a \n, or \r\n
 		
 		if(line == null) {
 			throw new ProtocolException(Protocol.BAD_REQUEST_CODE, Protocol.BAD_REQUEST_TEXT);
@@ -119,9 +122,9 @@ public class HttpRequest {
 		// Rest of the request is a header that maps keys to values
 		// e.g. Host: www.rose-hulman.edu
 		// We will convert both the strings to lower case to be able to search later
-		line = reader.readLine().trim();
+		line = readLine(inputStream);
 		
-		while(!line.equals("")) {
+		while(line != null && !line.trim().equals("")) {
 			// THIS IS A PATCH 
 			// Instead of a string tokenizer, we are using string split
 			// Lets break the line into two part with first space as a separator 
@@ -151,11 +154,45 @@ public class HttpRequest {
 			}
 			
 			// Processed one more line, now lets read another header line and loop
-			line = reader.readLine().trim();
+			line = readLine(inputStream);
+		}
+		
+		if(line == null) {
+			// The connection was closed in the middle of the header
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE, Protocol.BAD_REQUEST_TEXT);
 		}
 		return request;
 	}
 	
+	/**
+	 * Reads a line byte by byte, so that nothing after the line is taken
+	 * from the stream. Bytes are taken as ISO-8859-1 characters.
+	 * 
+	 * @param inputStream The input stream to read from.
+	 * @return The line without its line terminator, or null if the stream
+	 * ended before any byte was read.
+	 * @throws ProtocolException If the line is longer than {@link #MAX_LINE_LENGTH}.
+	 * @throws IOException If reading fails.
+	 */
+	public static String readLine(InputStream inputStream) throws ProtocolException, IOException {
+		StringBuilder line = new StringBuilder();
+		int b;
+		while((b = inputStream.read()) != -1) {
+			if(b == Protocol.LF) {
+				int length = line.length();
+				if(length > 0 && line.charAt(length - 1) == Protocol.CR) {
+					line.setLength(length - 1);
+				}
+				return line.toString();
+			}
+			if(line.length() == MAX_LINE_LENGTH) {
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE, Protocol.BAD_REQUEST_TEXT);
+			}
+			line.append((char) b);
+		}
+		return line.length() == 0 ? null : line.toString();
+	}
+	
 	
 	@Override
 	public String toString() {
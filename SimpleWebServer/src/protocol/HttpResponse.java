@@ -21,16 +21,21 @@
  
 package protocol;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileReader;
-import java.io.InputStreamReader;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 /**
  * Represents a response object for HTTP.
@@ -38,11 +43,19 @@ import java.util.Map;
  * @author Chandan R. Rupakheti (rupakhet@rose-hulman.edu)
  */
 public class HttpResponse {
+	private static final Random BOUNDARIES = new SecureRandom();
+	
 	private String version;
 	private int status;
 	private String phrase;
 	private Map<String, String> header;
+	private Map<String, byte[]> encodedHeader;
 	private File file;
+	private byte[] body;
+	private StreamingBody streamingBody;
+	private List<ByteRange> ranges;
+	private String boundary;
+	private byte[][] partHeads;
 
 	
 	/**
@@ -97,6 +110,31 @@ public class HttpResponse {
 		return file;
 	}
 
+	/**
+	 * Supplies the body from memory, e.g. an encoded variant of the file,
+	 * which is then sent instead of the file content.
+	 * 
+	 * @param body The bytes to send.
+	 */
+	public void setBody(byte[] body) {
+		this.body = body;
+	}
+
+	/**
+	 * Supplies a body that is produced while it is sent, instead of the file
+	 * content. The body is sent in the chunked transfer coding, so any
+	 * <tt>Content-Length</tt> set so far is dropped.
+	 * 
+	 * @param body The body to stream.
+	 */
+	public void setStreamingBody(StreamingBody body) {
+		this.streamingBody = body;
+		this.header.remove(Protocol.CONTENT_LENGTH);
+		if (this.encodedHeader != null)
+			this.encodedHeader.remove(Protocol.CONTENT_LENGTH);
+		put(Protocol.TRANSFER_ENCODING, Protocol.CHUNKED);
+	}
+
 	/**
 	 * Returns the header fields associated with the response object.
 	 * @return the header
@@ -113,6 +151,62 @@ public class HttpResponse {
 	 */
 	public void put(String key, String value) {
 		this.header.put(key, value);
+		if (this.encodedHeader != null)
+			this.encodedHeader.remove(key);
+	}
+
+	/**
+	 * Maps a key to value in the header map, supplying the complete header
+	 * line already encoded so that it is written without building a string.
+	 * @param key A key, e.g. "Content-Type"
+	 * @param value A value, e.g. "text/html; charset=utf-8"
+	 * @param line The encoded header line for key and value, CRLF included
+	 */
+	public void put(String key, String value, byte[] line) {
+		this.header.put(key, value);
+		if (this.encodedHeader == null)
+			this.encodedHeader = new HashMap<String, byte[]>();
+		this.encodedHeader.put(key, line);
+	}
+	
+	/**
+	 * Restricts the body to the supplied byte ranges of the file. A single
+	 * range is sent as is, several are sent as <tt>multipart/byteranges</tt>,
+	 * in which case the <tt>Content-Type</tt> header set so far becomes the
+	 * type of each part.
+	 * 
+	 * @param ranges The satisfiable ranges of the file.
+	 * @param total The length of the complete file.
+	 * @return The length of the body in bytes.
+	 */
+	public long setByteRanges(List<ByteRange> ranges, long total) {
+		this.ranges = ranges;
+		if(ranges.size() == 1) {
+			return ranges.get(0).length();
+		}
+		
+		this.boundary = Long.toHexString(BOUNDARIES.nextLong());
+		String partType = header.get(Protocol.CONTENT_TYPE);
+		this.partHeads = new byte[ranges.size()][];
+		long length = 0;
+		for(int i = 0; i < ranges.size(); i++) {
+			ByteRange range = ranges.get(i);
+			StringBuilder sb = new StringBuilder();
+			sb.append("--").append(boundary).append(Protocol.CRLF);
+			if(partType != null) {
+				sb.append(Protocol.CONTENT_TYPE).append(Protocol.SEPERATOR).append(Protocol.SPACE);
+				sb.append(partType).append(Protocol.CRLF);
+			}
+			sb.append(Protocol.CONTENT_RANGE).append(Protocol.SEPERATOR).append(Protocol.SPACE);
+			sb.append(range.toContentRange(total)).append(Protocol.CRLF);
+			sb.append(Protocol.CRLF);
+			partHeads[i] = sb.toString().getBytes();
+			length += partHeads[i].length + range.length() + Protocol.CRLF.length();
+		}
+		length += boundary.length() + 6; // "--" boundary "--" CRLF
+		
+		put(Protocol.CONTENT_TYPE, "multipart/byteranges; boundary=" + boundary);
+		return length;
 	}
 	
 	/**
@@ -122,6 +216,22 @@ public class HttpResponse {
 	 * @throws Exception
 	 */
 	public void write(OutputStream outStream) throws Exception {
+		write(outStream, null);
+	}
+	
+	/**
+	 * Writes the data of the http response object to the output stream. If
+	 * the channel the stream writes to is supplied as well, file content is
+	 * sent with {@link FileChannel#transferTo} and never enters the heap.
+	 * The file is sent up to the <tt>Content-Length</tt> in the header; if it
+	 * has become shorter since, the body is cut short with an exception, and
+	 * the connection has to be closed.
+	 * 
+	 * @param outStream The output stream
+	 * @param channel The channel underneath the output stream, may be null
+	 * @throws Exception
+	 */
+	public void write(OutputStream outStream, WritableByteChannel channel) throws Exception {
 		BufferedOutputStream out = new BufferedOutputStream(outStream, Protocol.CHUNK_LENGTH);
 
 		// First status line
@@ -134,6 +244,13 @@ public class HttpResponse {
 				String key = entry.getKey();
 				String value = entry.getValue();
 				
+				// Some lines come encoded already
+				byte[] encoded = encodedHeader == null ? null : encodedHeader.get(key);
+				if(encoded != null) {
+					out.write(encoded);
+					continue;
+				}
+				
 				// Write each header field line
 				line = key + Protocol.SEPERATOR + Protocol.SPACE + value + Protocol.CRLF;
 				out.write(line.getBytes());
@@ -143,26 +260,85 @@ public class HttpResponse {
 		// Write a blank line
 		out.write(Protocol.CRLF.getBytes());
 
+		// We produce the body as we go
+		if(streamingBody != null) {
+			ChunkedOutputStream chunked = new ChunkedOutputStream(out);
+			try {
+				Map<String, String> trailers = new HashMap<String, String>();
+				streamingBody.writeTo(chunked, trailers);
+				chunked.finish(trailers);
+			}
+			finally {
+				// The client may have gone away half way through
+				chunked.release();
+			}
+		}
+		// We have the body in memory already
+		else if(body != null) {
+			if(channel != null) {
+				out.flush();
+				ChannelIO.write(channel, ByteBuffer.wrap(body));
+			}
+			else {
+				out.write(body);
+			}
+		}
 		// We are reading a file
-		if(this.getStatus() == Protocol.OK_CODE && file != null) {
-			// Process text documents
-			FileInputStream fileInStream = new FileInputStream(file);
-			BufferedInputStream inStream = new BufferedInputStream(fileInStream, Protocol.CHUNK_LENGTH);
-			
-			byte[] buffer = new byte[Protocol.CHUNK_LENGTH];
-			int bytesRead = 0;
-			// While there is some bytes to read from file, read each chunk and send to the socket out stream
-			while((bytesRead = inStream.read(buffer)) != -1) {
-				out.write(buffer, 0, bytesRead);
+		else if((this.status == Protocol.OK_CODE || this.status == Protocol.PARTIAL_CONTENT_CODE) && file != null) {
+			FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			try {
+				if(ranges == null) {
+					// What the header promised, the file may have changed since
+					String length = header.get(Protocol.CONTENT_LENGTH);
+					writeRegion(out, channel, fileChannel, 0, length != null ? Long.parseLong(length) : fileChannel.size());
+				}
+				else if(ranges.size() == 1) {
+					ByteRange range = ranges.get(0);
+					writeRegion(out, channel, fileChannel, range.getFirst(), range.length());
+				}
+				else {
+					for(int i = 0; i < ranges.size(); i++) {
+						ByteRange range = ranges.get(i);
+						out.write(partHeads[i]);
+						writeRegion(out, channel, fileChannel, range.getFirst(), range.length());
+						out.write(Protocol.CRLF.getBytes());
+					}
+					out.write(("--" + boundary + "--" + Protocol.CRLF).getBytes());
+				}
+			}
+			finally {
+				// Close the file, we are done reading
+				fileChannel.close();
 			}
-			// Close the file input stream, we are done reading
-			inStream.close();
 		}
 		
 		// Flush the data so that outStream sends everything through the socket 
 		out.flush();
 	}
 	
+	private void writeRegion(BufferedOutputStream out, WritableByteChannel channel, FileChannel file, long position, long count) throws IOException {
+		if(channel != null) {
+			// Whatever is buffered has to go out before the file content
+			out.flush();
+			ChannelIO.transfer(file, position, count, channel);
+			return;
+		}
+		
+		// Read each chunk and send it to the socket out stream
+		ByteBuffer buffer = ByteBuffer.allocate(Protocol.CHUNK_LENGTH);
+		while(count > 0) {
+			buffer.clear();
+			buffer.limit((int) Math.min(buffer.capacity(), count));
+			int bytesRead = file.read(buffer, position);
+			if(bytesRead < 0) {
+				throw new EOFException("File truncated while sending");
+			}
+			out.write(buffer.array(), 0, bytesRead);
+			position += bytesRead;
+			count -= bytesRead;
+		}
+	}
+	
 	@Override
 	public String toString() {
 		StringBuffer buffer = new StringBuffer();
@@ -22,11 +22,8 @@
 package protocol;
 
 import java.io.File;
-import java.net.FileNameMap;
-import java.net.URLConnection;
-import java.util.Calendar;
-import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 
 /**
  * This is a factory to produce various kind of HTTP responses.
@@ -34,6 +31,11 @@ import java.util.HashMap;
  * @author Chandan R. Rupakheti (rupakhet@rose-hulman.edu)
  */
 public class HttpResponseFactory {
+	private static final HttpResponse NOT_FOUND_CLOSE = new PreencodedResponse(
+			build404NotFound(Protocol.CLOSE));
+	private static final HttpResponse NOT_FOUND_OPEN = new PreencodedResponse(
+			build404NotFound(Protocol.OPEN));
+
 	/**
 	 * Convenience method for adding general header to the supplied response
 	 * object.
@@ -51,8 +53,7 @@ public class HttpResponseFactory {
 		response.put(Protocol.CONNECTION, connection);
 
 		// Lets add current date
-		Date date = Calendar.getInstance().getTime();
-		response.put(Protocol.DATE, date.toString());
+		response.put(Protocol.DATE, HttpDate.now());
 
 		// Lets add server info
 		response.put(Protocol.Server, Protocol.getServerInfo());
@@ -73,37 +74,262 @@ public class HttpResponseFactory {
 	 * @return A {@link HttpResponse} object represent 200 status.
 	 */
 	public static HttpResponse create200OK(File file, String connection) {
+		return create200OK(file, file.lastModified(), file.length(), null,
+				connection);
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending the supplied file
+	 * whose attributes are already known, so that the file system need not be
+	 * consulted again.
+	 * 
+	 * @param file
+	 *            The {@link File} to be sent.
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param length
+	 *            The length of the file in bytes.
+	 * @param etag
+	 *            The entity tag of the file, null if there is none.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 200 status.
+	 */
+	public static HttpResponse create200OK(File file, long lastModified,
+			long length, String etag, String connection) {
+		return createFileResponse(Protocol.OK_CODE, Protocol.OK_TEXT, file,
+				lastModified, length, etag, connection);
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending content that is not
+	 * in a file, but made up for the request.
+	 * 
+	 * @param body
+	 *            The content.
+	 * @param contentType
+	 *            The media type of the content.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 200 status.
+	 */
+	public static HttpResponse create200OK(byte[] body, String contentType,
+			String connection) {
 		HttpResponse response = new HttpResponse(Protocol.VERSION,
 				Protocol.OK_CODE, Protocol.OK_TEXT,
-				new HashMap<String, String>(), file);
+				new HashMap<String, String>(), null);
+
+		fillGeneralHeader(response, connection);
+		response.put(Protocol.CONTENT_TYPE, contentType);
+		response.put(Protocol.CONTENT_LENGTH, Long.toString(body.length));
+		response.put(Protocol.CACHE_CONTROL, "no-store");
+		response.setBody(body);
+
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending an encoded variant of
+	 * the supplied file.
+	 * 
+	 * @param file
+	 *            The {@link File} that was encoded.
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param body
+	 *            The encoded content of the file.
+	 * @param encoding
+	 *            The content-coding of the body, e.g. {@link Protocol#GZIP}.
+	 * @param etag
+	 *            The entity tag of the encoded variant, null if there is none.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 200 status.
+	 */
+	public static HttpResponse create200OK(File file, long lastModified,
+			byte[] body, String encoding, String etag, String connection) {
+		HttpResponse response = createFileResponse(Protocol.OK_CODE,
+				Protocol.OK_TEXT, file, lastModified, body.length, etag,
+				connection);
+
+		response.put(Protocol.CONTENT_ENCODING, encoding);
+		response.setBody(body);
+
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending an encoded variant of
+	 * the supplied file that is produced while it is sent.
+	 * 
+	 * @param file
+	 *            The {@link File} that is encoded.
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param body
+	 *            Produces the encoded content of the file.
+	 * @param encoding
+	 *            The content-coding of the body, e.g. {@link Protocol#GZIP}.
+	 * @param etag
+	 *            The entity tag of the encoded variant, null if there is none.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 200 status.
+	 */
+	public static HttpResponse create200OK(File file, long lastModified,
+			StreamingBody body, String encoding, String etag,
+			String connection) {
+		HttpResponse response = createFileResponse(Protocol.OK_CODE,
+				Protocol.OK_TEXT, file, lastModified, 0, etag, connection);
+
+		response.put(Protocol.CONTENT_ENCODING, encoding);
+		response.setStreamingBody(body);
+
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending an encoded variant of
+	 * a file that is stored on disk already, e.g. <tt>site.css.gz</tt> for
+	 * <tt>site.css</tt>.
+	 * 
+	 * @param file
+	 *            The {@link File} that was encoded, which gives the type.
+	 * @param encodedFile
+	 *            The {@link File} holding the encoded content to be sent.
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param encodedLength
+	 *            The length of the encoded file in bytes.
+	 * @param encoding
+	 *            The content-coding of the encoded file.
+	 * @param etag
+	 *            The entity tag of the encoded variant, null if there is none.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 200 status.
+	 */
+	public static HttpResponse create200OK(File file, File encodedFile,
+			long lastModified, long encodedLength, String encoding,
+			String etag, String connection) {
+		HttpResponse response = createFileResponse(Protocol.OK_CODE,
+				Protocol.OK_TEXT, encodedFile, file.getName(), lastModified,
+				encodedLength, etag, connection);
+
+		response.put(Protocol.CONTENT_ENCODING, encoding);
+
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending the supplied ranges
+	 * of a file whose attributes are already known.
+	 * 
+	 * @param file
+	 *            The {@link File} to be sent.
+	 * @param lastModified
+	 *            The modification time of the file in milliseconds.
+	 * @param length
+	 *            The length of the file in bytes.
+	 * @param etag
+	 *            The entity tag of the file, null if there is none.
+	 * @param ranges
+	 *            The satisfiable ranges to send, at least one.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 206 status.
+	 */
+	public static HttpResponse create206PartialContent(File file,
+			long lastModified, long length, String etag,
+			List<ByteRange> ranges, String connection) {
+		HttpResponse response = createFileResponse(
+				Protocol.PARTIAL_CONTENT_CODE, Protocol.PARTIAL_CONTENT_TEXT,
+				file, lastModified, length, etag, connection);
+
+		long bodyLength = response.setByteRanges(ranges, length);
+		if (ranges.size() == 1) {
+			response.put(Protocol.CONTENT_RANGE,
+					ranges.get(0).toContentRange(length));
+		}
+		response.put(Protocol.CONTENT_LENGTH, bodyLength + "");
+
+		return response;
+	}
+
+	private static HttpResponse createFileResponse(int status, String phrase,
+			File file, long lastModified, long length, String etag,
+			String connection) {
+		return createFileResponse(status, phrase, file, file.getName(),
+				lastModified, length, etag, connection);
+	}
+
+	private static HttpResponse createFileResponse(int status, String phrase,
+			File file, String name, long lastModified, long length,
+			String etag, String connection) {
+		HttpResponse response = new HttpResponse(Protocol.VERSION, status,
+				phrase, new HashMap<String, String>(), file);
 
 		// Lets fill up header fields with more information
 		fillGeneralHeader(response, connection);
 
 		// Lets add last modified date for the file
-		long timeSinceEpoch = file.lastModified();
-		Date modifiedTime = new Date(timeSinceEpoch);
-		response.put(Protocol.LAST_MODIFIED, modifiedTime.toString());
+		response.put(Protocol.LAST_MODIFIED, HttpDate.format(lastModified));
 
 		// Lets get content length in bytes
-		long length = file.length();
 		response.put(Protocol.CONTENT_LENGTH, length + "");
 
+		// Lets add the validator for conditional requests
+		if (etag != null) {
+			response.put(Protocol.ETAG, etag);
+		}
+
+		// Lets tell the client it may ask for parts of the file
+		response.put(Protocol.ACCEPT_RANGES, Protocol.BYTES);
+
 		// Lets get MIME type for the file
-		FileNameMap fileNameMap = URLConnection.getFileNameMap();
-		String mime = fileNameMap.getContentTypeFor(file.getName());
-		// The fileNameMap cannot find mime type for all of the documents, e.g.
-		// doc, odt, etc.
-		// So we will not add this field if we cannot figure out what a mime
+		MimeTypes.MimeType mime = MimeTypes.getDefault().forFileName(name);
+		// We will not add this field if we cannot figure out what a mime
 		// type is for the file.
 		// Let browser do this job by itself.
 		if (mime != null) {
-			response.put(Protocol.CONTENT_TYPE, mime);
+			response.put(Protocol.CONTENT_TYPE, mime.getValue(),
+					mime.getHeaderLine());
 		}
 
 		return response;
 	}
 
+	/**
+	 * Creates a {@link HttpResponse} object for sending range not satisfiable
+	 * response.
+	 * 
+	 * @param length
+	 *            The length of the file in bytes.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 416 status.
+	 */
+	public static HttpResponse create416RangeNotSatisfiable(long length,
+			String connection) {
+		HttpResponse response = new HttpResponse(Protocol.VERSION,
+				Protocol.RANGE_NOT_SATISFIABLE_CODE,
+				Protocol.RANGE_NOT_SATISFIABLE_TEXT,
+				new HashMap<String, String>(), null);
+
+		fillGeneralHeader(response, connection);
+		response.put(Protocol.CONTENT_RANGE, Protocol.BYTES + " */" + length);
+		response.put(Protocol.CONTENT_LENGTH, "0");
+
+		return response;
+	}
+
 	/**
 	 * Creates a {@link HttpResponse} object for sending bad request response.
 	 * 
@@ -124,7 +350,9 @@ public class HttpResponseFactory {
 	}
 
 	/**
-	 * Creates a {@link HttpResponse} object for sending not found response.
+	 * Gets a {@link HttpResponse} object for sending not found response. Not
+	 * found responses are encoded once and shared, since scanners can make
+	 * them as frequent as real traffic.
 	 * 
 	 * @param connection
 	 *            Supported values are {@link Protocol#OPEN} and
@@ -132,12 +360,21 @@ public class HttpResponseFactory {
 	 * @return A {@link HttpResponse} object represent 404 status.
 	 */
 	public static HttpResponse create404NotFound(String connection) {
+		if (Protocol.CLOSE.equals(connection))
+			return NOT_FOUND_CLOSE;
+		if (Protocol.OPEN.equals(connection))
+			return NOT_FOUND_OPEN;
+		return build404NotFound(connection);
+	}
+
+	private static HttpResponse build404NotFound(String connection) {
 		HttpResponse response = new HttpResponse(Protocol.VERSION,
 				Protocol.NOT_FOUND_CODE, Protocol.NOT_FOUND_TEXT,
 				new HashMap<String, String>(), null);
 
 		// Lets fill up the header fields with more information
 		fillGeneralHeader(response, connection);
+		response.put(Protocol.CONTENT_LENGTH, "0");
 
 		return response;
 	}
@@ -161,14 +398,99 @@ public class HttpResponseFactory {
 		return response;
 	}
 
-	public static HttpResponse create401Unauthorized(String connection) {
-		HttpResponse response = new HttpResponse(Protocol.VERSION, 401,
-				"Unauthorized", new HashMap<String, String>(),new File("401.html"));
+	/**
+	 * Creates a {@link HttpResponse} object for a request that stored a new
+	 * file.
+	 * 
+	 * @param location
+	 *            The request path of the new file.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 201 status.
+	 */
+	public static HttpResponse create201Created(String location,
+			String connection) {
+		HttpResponse response = createEmpty(Protocol.CREATED_CODE,
+				Protocol.CREATED_TEXT, connection);
+		response.put(Protocol.LOCATION, location);
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for a request that replaced an
+	 * existing file.
+	 * 
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 204 status.
+	 */
+	public static HttpResponse create204NoContent(String connection) {
+		HttpResponse response = new HttpResponse(Protocol.VERSION,
+				Protocol.NO_CONTENT_CODE, Protocol.NO_CONTENT_TEXT,
+				new HashMap<String, String>(), null);
+
+		fillGeneralHeader(response, connection);
+
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for a request that failed with
+	 * the supplied status and has nothing more to say about it, e.g. one of
+	 * the statuses of a {@link ProtocolException}.
+	 * 
+	 * @param status
+	 *            The status code.
+	 * @param phrase
+	 *            The status phrase.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent the status.
+	 */
+	public static HttpResponse createEmpty(int status, String phrase,
+			String connection) {
+		HttpResponse response = new HttpResponse(Protocol.VERSION, status,
+				phrase, new HashMap<String, String>(), null);
 
 		fillGeneralHeader(response, connection);
+		response.put(Protocol.CONTENT_LENGTH, "0");
 
-		response.put("WWW-Authenticate", "Digest realm=\"SimpleWebServer\", "
-				+ "qop=\"auth,auth-int\", " + "nonce=\"2987123894b\"");
+		return response;
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for a request method the server
+	 * does not support.
+	 * 
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 501 status.
+	 */
+	public static HttpResponse create501NotImplemented(String connection) {
+		return createEmpty(Protocol.NOT_IMPLEMENTED_CODE,
+				Protocol.NOT_IMPLEMENTED_TEXT, connection);
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for a request that needs
+	 * credentials it did not supply, or supplied wrong.
+	 * 
+	 * @param challenge
+	 *            The <tt>WWW-Authenticate</tt> field value.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 401 status.
+	 */
+	public static HttpResponse create401Unauthorized(String challenge,
+			String connection) {
+		HttpResponse response = createEmpty(Protocol.UNAUTHORIZED_CODE,
+				Protocol.UNAUTHORIZED_TEXT, connection);
+		response.put(Protocol.WWW_AUTHENTICATE, challenge);
 
 		return response;
 
@@ -184,22 +506,38 @@ public class HttpResponseFactory {
 	 * @return A {@link HttpResponse} object represent 304 status.
 	 */
 	public static HttpResponse create304NotModified(String connection) {
+		return create304NotModified(null, connection);
+	}
+
+	/**
+	 * Creates a {@link HttpResponse} object for sending file not modified
+	 * response that repeats the entity tag of the file, as a 200 response
+	 * would have.
+	 * 
+	 * @param etag
+	 *            The entity tag of the file, null if there is none.
+	 * @param connection
+	 *            Supported values are {@link Protocol#OPEN} and
+	 *            {@link Protocol#CLOSE}.
+	 * @return A {@link HttpResponse} object represent 304 status.
+	 */
+	public static HttpResponse create304NotModified(String etag,
+			String connection) {
 		HttpResponse response = new HttpResponse(Protocol.VERSION,
 				Protocol.NOT_MODIFIED_CODE, Protocol.NOT_MODIFIED_TEXT,
 				new HashMap<String, String>(), null);
 
 		fillGeneralHeader(response, connection);
 
+		if (etag != null) {
+			response.put(Protocol.ETAG, etag);
+		}
+
 		return response;
 	}
 
 	public static HttpResponse create403Forbidden(String connection) {
-		HttpResponse response = new HttpResponse(Protocol.VERSION,
-				Protocol.FORBIDDEN_CODE, Protocol.FORBIDDEN_TEXT,
-				new HashMap<String, String>(), new File("403.html"));
-
-		fillGeneralHeader(response, connection);
-
-		return response;
+		return createEmpty(Protocol.FORBIDDEN_CODE, Protocol.FORBIDDEN_TEXT,
+				connection);
 	}
 }
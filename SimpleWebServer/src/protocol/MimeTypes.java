@@ -0,0 +1,199 @@
+/*
+ * MimeTypes.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * Maps file extensions to MIME types. The table is compiled once into a hash
+ * map whose entries already hold the encoded <tt>Content-Type</tt> header
+ * line, charset included for textual types, so that responses can carry the
+ * header without building any strings.
+ *
+ * The built-in table can be extended or overridden from a file in the format
+ * of the Apache <tt>mime.types</tt> file: one type per line followed by its
+ * extensions, e.g. <tt>text/css css</tt>. Lines starting with '#' are ignored.
+ */
+public class MimeTypes {
+	public static final String CHARSET = "utf-8";
+
+	private static final String[][] DEFAULTS = {
+			{ "text/html", "html", "htm" }, { "text/plain", "txt", "text", "log" },
+			{ "text/css", "css" }, { "text/csv", "csv" },
+			{ "text/markdown", "md" }, { "text/xml", "xml" },
+			{ "application/javascript", "js", "mjs" },
+			{ "application/json", "json", "map" },
+			{ "application/manifest+json", "webmanifest" },
+			{ "application/wasm", "wasm" }, { "application/pdf", "pdf" },
+			{ "application/zip", "zip" }, { "application/gzip", "gz" },
+			{ "application/octet-stream", "bin", "exe" },
+			{ "application/msword", "doc" },
+			{ "application/vnd.oasis.opendocument.text", "odt" },
+			{ "image/svg+xml", "svg" }, { "image/png", "png" },
+			{ "image/jpeg", "jpg", "jpeg" }, { "image/gif", "gif" },
+			{ "image/webp", "webp" }, { "image/avif", "avif" },
+			{ "image/x-icon", "ico" }, { "font/woff", "woff" },
+			{ "font/woff2", "woff2" }, { "font/ttf", "ttf" },
+			{ "font/otf", "otf" }, { "audio/mpeg", "mp3" },
+			{ "audio/ogg", "oga", "ogg" }, { "audio/wav", "wav" },
+			{ "video/mp4", "mp4", "m4v" }, { "video/webm", "webm" },
+			{ "video/ogg", "ogv" } };
+
+	private static volatile MimeTypes instance = new MimeTypes(
+			new HashMap<String, MimeType>());
+
+	/**
+	 * A MIME type together with its encoded header line.
+	 */
+	public static class MimeType {
+		private final String value;
+		private final byte[] headerLine;
+		private final boolean compressible;
+
+		private MimeType(String type) {
+			this.value = isTextual(type) ? type + "; charset=" + CHARSET : type;
+			this.compressible = isTextual(type)
+					|| type.equals("application/wasm");
+			this.headerLine = (Protocol.CONTENT_TYPE + Protocol.SEPERATOR
+					+ Protocol.SPACE + value + Protocol.CRLF).getBytes();
+		}
+
+		/**
+		 * The value of the <tt>Content-Type</tt> header, e.g.
+		 * <tt>text/css; charset=utf-8</tt>.
+		 *
+		 * @return the value
+		 */
+		public String getValue() {
+			return value;
+		}
+
+		/**
+		 * Whether content of this type shrinks noticeably when compressed.
+		 * Images, audio, video and archives are compressed already.
+		 *
+		 * @return true if worth compressing
+		 */
+		public boolean isCompressible() {
+			return compressible;
+		}
+
+		/**
+		 * The complete encoded header line, CRLF included.
+		 *
+		 * @return the header line
+		 */
+		public byte[] getHeaderLine() {
+			return headerLine;
+		}
+	}
+
+	private final Map<String, MimeType> byExtension;
+
+	private MimeTypes(Map<String, MimeType> overrides) {
+		byExtension = new HashMap<String, MimeType>();
+		for (String[] row : DEFAULTS)
+			add(byExtension, row[0], row, 1);
+		byExtension.putAll(overrides);
+	}
+
+	/**
+	 * Gets the table in use.
+	 *
+	 * @return the table
+	 */
+	public static MimeTypes getDefault() {
+		return instance;
+	}
+
+	/**
+	 * Replaces the table in use by the built-in table extended with the
+	 * supplied file. The built-in table stays in use if the file is missing.
+	 *
+	 * @param file
+	 *            A file in <tt>mime.types</tt> format.
+	 */
+	public static void load(File file) {
+		if (!file.exists())
+			return;
+
+		Map<String, MimeType> overrides = new HashMap<String, MimeType>();
+		try {
+			Scanner s = new Scanner(file);
+			while (s.hasNextLine()) {
+				String line = s.nextLine().trim();
+				if (line.isEmpty() || line.charAt(0) == '#')
+					continue;
+				String[] splitLine = line.split("\\s+");
+				add(overrides, splitLine[0], splitLine, 1);
+			}
+			s.close();
+		} catch (FileNotFoundException e) {
+			// shouldn't get here
+			e.printStackTrace();
+		}
+		instance = new MimeTypes(overrides);
+	}
+
+	/**
+	 * Looks up the type for a file name by its extension.
+	 *
+	 * @param fileName
+	 *            The file name, e.g. <tt>site.css</tt>.
+	 * @return The type, or null if the extension is unknown.
+	 */
+	public MimeType forFileName(String fileName) {
+		int dot = fileName.lastIndexOf('.');
+		if (dot < 0 || dot == fileName.length() - 1)
+			return null;
+		String extension = fileName.substring(dot + 1);
+		MimeType type = byExtension.get(extension);
+		if (type == null)
+			type = byExtension.get(extension.toLowerCase());
+		return type;
+	}
+
+	/**
+	 * Whether content of this type is text, and so gets a charset.
+	 *
+	 * @param type
+	 *            A MIME type without parameters.
+	 * @return true for textual types
+	 */
+	public static boolean isTextual(String type) {
+		return type.startsWith("text/") || type.endsWith("+xml")
+				|| type.endsWith("+json") || type.equals("application/json")
+				|| type.equals("application/javascript")
+				|| type.equals("application/xml");
+	}
+
+	private static void add(Map<String, MimeType> map, String type,
+			String[] extensions, int from) {
+		MimeType mime = new MimeType(type);
+		for (int i = from; i < extensions.length; i++)
+			map.put(extensions[i].toLowerCase(), mime);
+	}
+}
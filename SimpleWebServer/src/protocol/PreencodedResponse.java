@@ -0,0 +1,84 @@
+/*
+ * PreencodedResponse.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link HttpResponse} whose status line and header fields are encoded to
+ * bytes once, so that it can be shared between requests and written without
+ * building any strings. Only the <tt>Date</tt> header is produced at write
+ * time. The header of a pre-encoded response cannot be changed.
+ */
+public class PreencodedResponse extends HttpResponse {
+	private final byte[] head;
+
+	/**
+	 * Encodes the supplied response. Its <tt>Date</tt> header, if any, is
+	 * dropped, since it would be stale by the time the response is sent.
+	 *
+	 * @param template
+	 *            The response to encode, which must not have a file.
+	 */
+	public PreencodedResponse(HttpResponse template) {
+		super(template.getVersion(), template.getStatus(), template
+				.getPhrase(), withoutDate(template.getHeader()), null);
+
+		StringBuilder sb = new StringBuilder();
+		sb.append(getVersion()).append(Protocol.SPACE).append(getStatus())
+				.append(Protocol.SPACE).append(getPhrase())
+				.append(Protocol.CRLF);
+		for (Map.Entry<String, String> entry : getHeader().entrySet()) {
+			sb.append(entry.getKey()).append(Protocol.SEPERATOR)
+					.append(Protocol.SPACE).append(entry.getValue())
+					.append(Protocol.CRLF);
+		}
+		this.head = sb.toString().getBytes();
+	}
+
+	private static Map<String, String> withoutDate(Map<String, String> header) {
+		Map<String, String> copy = new HashMap<String, String>(header);
+		copy.remove(Protocol.DATE);
+		return copy;
+	}
+
+	@Override
+	public void put(String key, String value) {
+		throw new UnsupportedOperationException(
+				"A pre-encoded response cannot be changed");
+	}
+
+	@Override
+	public void write(OutputStream outStream, WritableByteChannel channel)
+			throws Exception {
+		// There is no body, so the channel is of no use
+		String date = Protocol.DATE + Protocol.SEPERATOR + Protocol.SPACE
+				+ HttpDate.now() + Protocol.CRLF
+				+ Protocol.CRLF;
+		outStream.write(head);
+		outStream.write(date.getBytes());
+		outStream.flush();
+	}
+}
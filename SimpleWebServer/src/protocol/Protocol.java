@@ -39,11 +39,22 @@ public class Protocol {
     // Some useful protocol elements
     public static final String VERSION = "HTTP/1.1";
     public static final String GET = "GET";
+    public static final String PUT = "PUT";
+    public static final String POST = "POST";
     
     // Some useful http codes and text
     public static final int OK_CODE = 200;
     public static final String OK_TEXT = "OK";
     
+    public static final int CREATED_CODE = 201;
+    public static final String CREATED_TEXT = "Created";
+    
+    public static final int NO_CONTENT_CODE = 204;
+    public static final String NO_CONTENT_TEXT = "No Content";
+    
+    public static final int PARTIAL_CONTENT_CODE = 206;
+    public static final String PARTIAL_CONTENT_TEXT = "Partial Content";
+    
     public static final int MOVED_PERMANENTLY_CODE = 301;
     public static final String MOVED_PERMANENTLY_TEXT = "Moved Permanently";
     
@@ -56,6 +67,24 @@ public class Protocol {
     public static final int NOT_FOUND_CODE = 404;
     public static final String NOT_FOUND_TEXT = "Not Found";
     
+    public static final int CONFLICT_CODE = 409;
+    public static final String CONFLICT_TEXT = "Conflict";
+    
+    public static final int LENGTH_REQUIRED_CODE = 411;
+    public static final String LENGTH_REQUIRED_TEXT = "Length Required";
+    
+    public static final int PAYLOAD_TOO_LARGE_CODE = 413;
+    public static final String PAYLOAD_TOO_LARGE_TEXT = "Payload Too Large";
+    
+    public static final int RANGE_NOT_SATISFIABLE_CODE = 416;
+    public static final String RANGE_NOT_SATISFIABLE_TEXT = "Range Not Satisfiable";
+    
+    public static final int EXPECTATION_FAILED_CODE = 417;
+    public static final String EXPECTATION_FAILED_TEXT = "Expectation Failed";
+    
+    public static final int NOT_IMPLEMENTED_CODE = 501;
+    public static final String NOT_IMPLEMENTED_TEXT = "Not Implemented";
+    
     public static final int NOT_SUPPORTED_CODE = 505;
     public static final String NOT_SUPPORTED_TEXT = "HTTP Version Not Supported";
     
@@ -70,6 +99,8 @@ public class Protocol {
     public static final String HOST = "Host";
     public static final String CONNECTION = "Connection";
     public static final String USER_AGENT = "User-Agent";
+    public static final String EXPECT = "Expect";
+    public static final String CONTINUE = "100-continue";
 
     // Some useful header elements in response
     public static final String DATE = "Date";
@@ -77,6 +108,21 @@ public class Protocol {
     public static final String LAST_MODIFIED = "Last-Modified";
     public static final String CONTENT_LENGTH = "Content-Length";
     public static final String CONTENT_TYPE = "Content-Type";
+    public static final String ETAG = "ETag";
+    public static final String ACCEPT_RANGES = "Accept-Ranges";
+    public static final String CONTENT_RANGE = "Content-Range";
+    public static final String BYTES = "bytes";
+    public static final String CONTENT_ENCODING = "Content-Encoding";
+    public static final String VARY = "Vary";
+    public static final String ACCEPT_ENCODING = "Accept-Encoding";
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final String CACHE_CONTROL = "Cache-Control";
+    public static final String EXPIRES = "Expires";
+    public static final String TRANSFER_ENCODING = "Transfer-Encoding";
+    public static final String CHUNKED = "chunked";
+    public static final String LOCATION = "Location";
+    public static final String WWW_AUTHENTICATE = "WWW-Authenticate";
     
     /**
      * A chunk size to be used when reading a file and sending it to a socket. 
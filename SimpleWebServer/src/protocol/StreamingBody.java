@@ -0,0 +1,50 @@
+/*
+ * StreamingBody.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package protocol;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+/**
+ * A response body that is produced while it is being sent, so that neither
+ * its length nor its content need to be known up front. Such a body is sent
+ * with <tt>Transfer-Encoding: chunked</tt>.
+ *
+ * @see HttpResponse#setStreamingBody(StreamingBody)
+ */
+public interface StreamingBody {
+	/**
+	 * Writes the whole body.
+	 *
+	 * @param out
+	 *            The stream to write the body to. Closing it does not end the
+	 *            body, it ends when this method returns.
+	 * @param trailers
+	 *            Header fields that are only known once the body is written
+	 *            can be put here, they are sent after the body.
+	 * @throws IOException
+	 *             If producing or sending the body fails.
+	 */
+	public void writeTo(OutputStream out, Map<String, String> trailers)
+			throws IOException;
+}
@@ -0,0 +1,416 @@
+/*
+ * AccessLog.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Writes one line per request to a log file, in the Combined Log Format
+ * followed by the time taken in microseconds:
+ *
+ * <pre>
+ * 127.0.0.1 - bob [18/Oct/2013:21:36:04 +0000] "GET /a.html HTTP/1.1" 200 512 "-" "curl/7.88.1" 734
+ * </pre>
+ *
+ * Workers do not write anything themselves. They claim a slot in a ring of
+ * preallocated records, fill it and mark it published, all without locking;
+ * a background thread formats the published records and writes them out in
+ * batches. When the ring is full, because the disk cannot keep up, the
+ * {@link Overflow} policy decides whether the worker waits or the record is
+ * dropped and counted.
+ *
+ * The file is rotated once it grows past its size limit: <tt>access.log</tt>
+ * becomes <tt>access.log.1</tt>, that becomes <tt>access.log.2</tt> and so on,
+ * and the oldest is deleted.
+ *
+ * A client the rate limiter blacklists is logged once, as a line without a
+ * request and with status 0, since the connection is closed unanswered.
+ */
+public class AccessLog {
+	/**
+	 * What to do when the ring is full.
+	 */
+	public enum Overflow {
+		/**
+		 * Lose the record, so that logging never slows requests down.
+		 */
+		DROP,
+		/**
+		 * Wait for room, so that no record is lost.
+		 */
+		BLOCK
+	}
+
+	private static final long IDLE_PARK = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final int BATCH = 256;
+
+	/**
+	 * One request, reused for every turn of the ring.
+	 */
+	private static class Record {
+		volatile long sequence = -1;
+		long time;
+		InetAddress address;
+		String user;
+		String method;
+		String uri;
+		String version;
+		int status;
+		long length;
+		String referer;
+		String userAgent;
+		long nanos;
+	}
+
+	private final File file;
+	private final long maxLength;
+	private final int keep;
+	private final Overflow overflow;
+	private final Record[] ring;
+	private final int mask;
+	private final AtomicLong claimed;
+	private volatile long consumed;
+	private final LongAdder dropped;
+
+	private final SimpleDateFormat dateFormat;
+	private long formattedSecond = -1;
+	private String formattedDate;
+	private OutputStream out;
+	private long length;
+	private volatile boolean stopped;
+	private volatile boolean sleeping;
+	private volatile Thread writer;
+
+	/**
+	 * @param file
+	 *            The log file, appended to.
+	 * @param capacity
+	 *            The number of records the ring holds, rounded up to a power
+	 *            of two.
+	 * @param maxLength
+	 *            The size in bytes at which the file is rotated.
+	 * @param keep
+	 *            The number of rotated files to keep.
+	 * @param overflow
+	 *            What to do when the ring is full.
+	 */
+	public AccessLog(File file, int capacity, long maxLength, int keep,
+			Overflow overflow) {
+		this.file = file;
+		this.maxLength = maxLength;
+		this.keep = keep;
+		this.overflow = overflow;
+
+		int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+		this.ring = new Record[size];
+		for (int i = 0; i < size; i++)
+			ring[i] = new Record();
+		this.mask = size - 1;
+		this.claimed = new AtomicLong();
+		this.dropped = new LongAdder();
+
+		this.dateFormat = new SimpleDateFormat("dd/MMM/yyyy:HH:mm:ss Z",
+				Locale.US);
+	}
+
+	/**
+	 * Opens the file and starts the writer thread.
+	 */
+	public synchronized void start() {
+		try {
+			openFile();
+		} catch (IOException e) {
+			// Records are still taken, just not written anywhere
+			e.printStackTrace();
+		}
+
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "access-log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes out what is left in the ring, then closes the file.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (writer == null)
+			return;
+		LockSupport.unpark(writer);
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Gets the number of records lost because the ring was full.
+	 *
+	 * @return the count since the start
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Logs a request. Called by the workers, does not touch the disk.
+	 *
+	 * @param address
+	 *            The client address.
+	 * @param user
+	 *            The authenticated user, or null.
+	 * @param method
+	 *            The request method, or null if the request could not be
+	 *            read.
+	 * @param uri
+	 *            The request target.
+	 * @param version
+	 *            The protocol version of the request.
+	 * @param status
+	 *            The response status, or 0 if none was sent.
+	 * @param length
+	 *            The length of the response body, or -1 if not known.
+	 * @param referer
+	 *            The <tt>Referer</tt> field value, or null.
+	 * @param userAgent
+	 *            The <tt>User-Agent</tt> field value, or null.
+	 * @param nanos
+	 *            How long the request took.
+	 */
+	public void log(InetAddress address, String user, String method,
+			String uri, String version, int status, long length,
+			String referer, String userAgent, long nanos) {
+		long sequence = claim();
+		if (sequence < 0) {
+			dropped.increment();
+			return;
+		}
+
+		Record record = ring[(int) sequence & mask];
+		record.time = System.currentTimeMillis();
+		record.address = address;
+		record.user = user;
+		record.method = method;
+		record.uri = uri;
+		record.version = version;
+		record.status = status;
+		record.length = length;
+		record.referer = referer;
+		record.userAgent = userAgent;
+		record.nanos = nanos;
+		// Publishes the fields above to the writer
+		record.sequence = sequence;
+
+		// Only wake the writer when it went to sleep, most of the time it is
+		// still busy with the records before
+		if (sleeping) {
+			sleeping = false;
+			LockSupport.unpark(writer);
+		}
+	}
+
+	/**
+	 * @return the sequence number of a free slot, or -1 to drop the record
+	 */
+	private long claim() {
+		while (true) {
+			long sequence = claimed.get();
+			if (sequence - consumed >= ring.length) {
+				if (overflow == Overflow.DROP || stopped)
+					return -1;
+				LockSupport.parkNanos(IDLE_PARK);
+				continue;
+			}
+			if (claimed.compareAndSet(sequence, sequence + 1))
+				return sequence;
+		}
+	}
+
+	private void drain() {
+		StringBuilder sb = new StringBuilder(BATCH * 160);
+		long next = consumed;
+		while (true) {
+			int count = 0;
+			Record record;
+			while (count < BATCH
+					&& (record = ring[(int) next & mask]).sequence == next) {
+				format(sb, record);
+				record.address = null;
+				record.user = null;
+				record.uri = null;
+				record.referer = null;
+				record.userAgent = null;
+				next++;
+				count++;
+			}
+			// Hand the slots back before the slow part
+			consumed = next;
+
+			try {
+				if (sb.length() > 0) {
+					write(sb);
+					sb.setLength(0);
+				}
+				if (count < BATCH && out != null)
+					out.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+				sb.setLength(0);
+			}
+
+			if (count == 0) {
+				if (stopped && next == claimed.get())
+					break;
+				// Say so before looking once more, so that a record published
+				// meanwhile is either seen here or wakes us up
+				sleeping = true;
+				if (ring[(int) next & mask].sequence != next && !stopped)
+					LockSupport.park(this);
+				sleeping = false;
+			}
+		}
+
+		try {
+			if (out != null)
+				out.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private void format(StringBuilder sb, Record record) {
+		sb.append(record.address == null ? "-" : record.address
+				.getHostAddress());
+		sb.append(" - ");
+		sb.append(record.user == null ? "-" : record.user);
+		sb.append(" [").append(date(record.time)).append("] \"");
+		if (record.method == null) {
+			sb.append('-');
+		} else {
+			escape(sb, record.method);
+			sb.append(' ');
+			escape(sb, record.uri);
+			sb.append(' ');
+			escape(sb, record.version);
+		}
+		sb.append("\" ").append(record.status).append(' ');
+		if (record.length < 0)
+			sb.append('-');
+		else
+			sb.append(record.length);
+		sb.append(" \"");
+		escape(sb, record.referer == null ? "-" : record.referer);
+		sb.append("\" \"");
+		escape(sb, record.userAgent == null ? "-" : record.userAgent);
+		sb.append("\" ").append(record.nanos / 1000).append('\n');
+	}
+
+	/**
+	 * Formats a time, once per second at most.
+	 */
+	private String date(long time) {
+		long second = time / 1000;
+		if (second != formattedSecond) {
+			formattedDate = dateFormat.format(new Date(time));
+			formattedSecond = second;
+		}
+		return formattedDate;
+	}
+
+	/**
+	 * Keeps quotes and control characters sent by the client from breaking
+	 * up the line. Used by the {@link SlowRequestLog} as well.
+	 */
+	static void escape(StringBuilder sb, String s) {
+		if (s == null) {
+			sb.append('-');
+			return;
+		}
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if (c < 0x20 || c == 0x7f) {
+				sb.append("\\x").append(Character.forDigit(c >> 4, 16))
+						.append(Character.forDigit(c & 0xf, 16));
+			} else {
+				sb.append(c);
+			}
+		}
+	}
+
+	private void write(StringBuilder sb) throws IOException {
+		if (out == null)
+			return;
+		byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+		out.write(bytes);
+		length += bytes.length;
+		if (length >= maxLength) {
+			out.close();
+			rotate();
+			openFile();
+		}
+	}
+
+	private void rotate() {
+		File oldest = new File(file.getPath() + "." + keep);
+		if (oldest.exists() && !oldest.delete())
+			System.err.println("Could not delete " + oldest);
+		for (int i = keep - 1; i >= 1; i--) {
+			File from = new File(file.getPath() + "." + i);
+			if (from.exists())
+				from.renameTo(new File(file.getPath() + "." + (i + 1)));
+		}
+		if (keep > 0)
+			file.renameTo(new File(file.getPath() + ".1"));
+		else
+			file.delete();
+	}
+
+	private void openFile() throws IOException {
+		out = null;
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null)
+			directory.mkdirs();
+		length = file.length();
+		out = new BufferedOutputStream(new FileOutputStream(file, true),
+				64 * 1024);
+	}
+}
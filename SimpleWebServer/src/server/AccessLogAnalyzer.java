@@ -0,0 +1,564 @@
+/*
+ * AccessLogAnalyzer.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Summarizes access logs written by {@link AccessLog}: requests, bytes, error
+ * rate and latency percentiles in total, per status, per path and per
+ * client. Run it with the log files to read, e.g.
+ *
+ * <pre>
+ * java server.AccessLogAnalyzer -since 24 -top 20 access.log access.log.1
+ * </pre>
+ *
+ * <tt>-since</tt> only counts requests of the last so many hours and
+ * <tt>-top</tt> sets how many paths and clients are listed.
+ *
+ * The files are memory mapped and cut into slices at line boundaries, which
+ * a fork-join pool parses in parallel; the partial results are merged as the
+ * tasks join. Memory stays bounded however large the logs are: latencies go
+ * into fixed size histograms, and the path and client tables only keep the
+ * busiest {@link #MAX_KEYS} entries, folding the rest into
+ * <tt>(other)</tt>.
+ */
+public class AccessLogAnalyzer {
+	/**
+	 * The most paths or clients kept per table.
+	 */
+	public static final int MAX_KEYS = 4096;
+
+	private static final long SLICE_LENGTH = 32 * 1024 * 1024;
+	private static final int MAX_LINE_LENGTH = 64 * 1024;
+	private static final String OTHER = "(other)";
+	private static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr",
+			"May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+	/**
+	 * A compact latency histogram for table rows: four buckets per power of
+	 * two of microseconds, so about 20% precise.
+	 */
+	private static class SmallHistogram {
+		private static final int BUCKETS = 34 * 4;
+		final long[] counts = new long[BUCKETS];
+
+		void record(long micros) {
+			counts[index(micros)]++;
+		}
+
+		void add(SmallHistogram other) {
+			for (int i = 0; i < BUCKETS; i++)
+				counts[i] += other.counts[i];
+		}
+
+		long valueAtQuantile(double quantile) {
+			long total = 0;
+			for (long count : counts)
+				total += count;
+			if (total == 0)
+				return 0;
+			long rank = Math.max(1, (long) Math.ceil(quantile * total));
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += counts[i];
+				if (seen >= rank)
+					return highest(i);
+			}
+			return highest(BUCKETS - 1);
+		}
+
+		private static int index(long micros) {
+			if (micros < 4)
+				return (int) Math.max(micros, 0);
+			int msb = 63 - Long.numberOfLeadingZeros(micros);
+			int index = (msb - 1) * 4 + (int) ((micros >>> (msb - 2)) & 3);
+			return Math.min(index, BUCKETS - 1);
+		}
+
+		private static long highest(int index) {
+			if (index < 4)
+				return index;
+			int msb = index / 4 + 1;
+			return ((4L + (index & 3) + 1) << (msb - 2)) - 1;
+		}
+	}
+
+	/**
+	 * Requests, bytes, errors and latencies of a path, client or status.
+	 */
+	private static class Row {
+		long requests;
+		long bytes;
+		long errors;
+		final SmallHistogram latency = new SmallHistogram();
+
+		void add(Row other) {
+			requests += other.requests;
+			bytes += other.bytes;
+			errors += other.errors;
+			latency.add(other.latency);
+		}
+	}
+
+	/**
+	 * Everything gathered from some part of the logs.
+	 */
+	private static class Summary {
+		long lines;
+		long skipped;
+		final Row total = new Row();
+		final LatencyHistogram latency = new LatencyHistogram();
+		final Map<Integer, Row> byStatus = new HashMap<Integer, Row>();
+		final Map<String, Row> byPath = new HashMap<String, Row>();
+		final Map<String, Row> byClient = new HashMap<String, Row>();
+
+		void add(Summary other) {
+			lines += other.lines;
+			skipped += other.skipped;
+			total.add(other.total);
+			latency.add(other.latency);
+			for (Map.Entry<Integer, Row> entry : other.byStatus.entrySet())
+				row(byStatus, entry.getKey()).add(entry.getValue());
+			merge(byPath, other.byPath);
+			merge(byClient, other.byClient);
+		}
+
+		private static void merge(Map<String, Row> into, Map<String, Row> from) {
+			for (Map.Entry<String, Row> entry : from.entrySet())
+				row(into, entry.getKey()).add(entry.getValue());
+			prune(into);
+		}
+	}
+
+	/**
+	 * A part of a log file, from the first line starting at or after
+	 * <tt>start</tt> to the last line starting before <tt>end</tt>.
+	 */
+	private static class Slice {
+		final File file;
+		final long start;
+		final long end;
+
+		Slice(File file, long start, long end) {
+			this.file = file;
+			this.start = start;
+			this.end = end;
+		}
+	}
+
+	/**
+	 * Parses a range of slices, splitting it in halves down to single ones.
+	 */
+	private static class ParseTask extends RecursiveTask<Summary> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<Slice> slices;
+		private final int from;
+		private final int to;
+		private final long since;
+
+		ParseTask(List<Slice> slices, int from, int to, long since) {
+			this.slices = slices;
+			this.from = from;
+			this.to = to;
+			this.since = since;
+		}
+
+		@Override
+		protected Summary compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				ParseTask left = new ParseTask(slices, from, middle, since);
+				left.fork();
+				Summary summary = new ParseTask(slices, middle, to, since)
+						.compute();
+				summary.add(left.join());
+				return summary;
+			}
+
+			Summary summary = new Summary();
+			if (to > from) {
+				try {
+					parse(slices.get(from), since, summary);
+				} catch (IOException e) {
+					System.err.println("Could not read "
+							+ slices.get(from).file + ": " + e.getMessage());
+				}
+			}
+			return summary;
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		int top = 10;
+		long since = Long.MIN_VALUE;
+		List<File> files = new ArrayList<File>();
+		for (int i = 0; i < args.length; i++) {
+			if ("-top".equals(args[i]) && i + 1 < args.length) {
+				top = Integer.parseInt(args[++i]);
+			} else if ("-since".equals(args[i]) && i + 1 < args.length) {
+				since = System.currentTimeMillis() / 1000
+						- (long) (Double.parseDouble(args[++i]) * 3600);
+			} else {
+				files.add(new File(args[i]));
+			}
+		}
+		if (files.isEmpty()) {
+			System.err.println("Usage: java server.AccessLogAnalyzer"
+					+ " [-since hours] [-top n] file...");
+			System.exit(2);
+		}
+
+		long started = System.nanoTime();
+		Summary summary = analyze(files, since);
+		print(summary, top, System.out);
+		System.out.printf("%nRead %d lines in %.1f s%n", summary.lines,
+				(System.nanoTime() - started) / 1e9);
+	}
+
+	private static Summary analyze(List<File> files, long since)
+			throws IOException {
+		List<Slice> slices = new ArrayList<Slice>();
+		for (File file : files) {
+			long length = file.length();
+			for (long start = 0; start < length; start += SLICE_LENGTH)
+				slices.add(new Slice(file, start, Math.min(start
+						+ SLICE_LENGTH, length)));
+		}
+		return new ForkJoinPool().invoke(new ParseTask(slices, 0,
+				slices.size(), since));
+	}
+
+	private static void parse(Slice slice, long since, Summary summary)
+			throws IOException {
+		FileChannel channel = FileChannel.open(slice.file.toPath(),
+				StandardOpenOption.READ);
+		try {
+			// Map a little more, for the last line running past the end
+			long mapEnd = Math.min(channel.size(), slice.end + MAX_LINE_LENGTH);
+			MappedByteBuffer buffer = channel.map(
+					FileChannel.MapMode.READ_ONLY, slice.start, mapEnd
+							- slice.start);
+			int limit = buffer.limit();
+			int end = (int) (slice.end - slice.start);
+
+			int pos = 0;
+			if (slice.start > 0 && !isLineStart(channel, slice.start)) {
+				// The line we are in belongs to the previous slice
+				while (pos < limit && buffer.get(pos) != '\n')
+					pos++;
+				pos++;
+			}
+
+			byte[] line = new byte[MAX_LINE_LENGTH];
+			while (pos < end && pos < limit) {
+				int length = 0;
+				while (pos < limit && buffer.get(pos) != '\n') {
+					if (length < line.length)
+						line[length++] = buffer.get(pos);
+					pos++;
+				}
+				pos++;
+				summary.lines++;
+				if (!parseLine(line, length, since, summary))
+					summary.skipped++;
+			}
+		} finally {
+			channel.close();
+		}
+	}
+
+	private static boolean isLineStart(FileChannel channel, long position)
+			throws IOException {
+		ByteBuffer previous = ByteBuffer.allocate(1);
+		channel.read(previous, position - 1);
+		return previous.get(0) == '\n';
+	}
+
+	/**
+	 * Reads one line of the Combined Log Format with the time taken in
+	 * microseconds at the end.
+	 *
+	 * @return false if the line is not in that format
+	 */
+	private static boolean parseLine(byte[] line, int length, long since,
+			Summary summary) {
+		if (length > 0 && line[length - 1] == '\r')
+			length--;
+
+		int space = indexOf(line, 0, length, (byte) ' ');
+		int open = indexOf(line, space, length, (byte) '[');
+		int close = indexOf(line, open, length, (byte) ']');
+		int quote = indexOf(line, close, length, (byte) '"');
+		if (space < 0 || open < 0 || close < 0 || quote < 0)
+			return false;
+
+		if (since != Long.MIN_VALUE) {
+			long time = parseTime(line, open + 1, close);
+			if (time == Long.MIN_VALUE)
+				return false;
+			if (time < since)
+				return true;
+		}
+
+		// The request line, with escaped quotes
+		int endQuote = quote + 1;
+		while (endQuote < length && line[endQuote] != '"') {
+			if (line[endQuote] == '\\')
+				endQuote++;
+			endQuote++;
+		}
+		if (endQuote >= length)
+			return false;
+		int methodEnd = indexOf(line, quote + 1, endQuote, (byte) ' ');
+		String path;
+		if (methodEnd < 0) {
+			path = "-";
+		} else {
+			int pathEnd = indexOf(line, methodEnd + 1, endQuote, (byte) ' ');
+			if (pathEnd < 0)
+				pathEnd = endQuote;
+			// Group by path, not by query
+			int query = indexOf(line, methodEnd + 1, pathEnd, (byte) '?');
+			if (query >= 0)
+				pathEnd = query;
+			path = new String(line, methodEnd + 1, pathEnd - methodEnd - 1,
+					StandardCharsets.ISO_8859_1);
+		}
+
+		int pos = endQuote + 2;
+		long status = parseNumber(line, pos, length);
+		if (status < 0)
+			return false;
+		pos = indexOf(line, pos, length, (byte) ' ') + 1;
+		if (pos <= 0)
+			return false;
+		long bytes = parseNumber(line, pos, length);
+
+		// The time taken is the last field, older lines may lack it
+		int last = length;
+		while (last > 0 && line[last - 1] >= '0' && line[last - 1] <= '9')
+			last--;
+		long micros = last > 0 && last < length && line[last - 1] == ' '
+				&& line[last - 2] == '"' ? parseNumber(line, last, length)
+				: -1;
+
+		String client = new String(line, 0, space,
+				StandardCharsets.ISO_8859_1);
+		boolean error = status >= 500;
+		count(summary.total, bytes, error, micros);
+		count(row(summary.byStatus, (int) status), bytes, error, micros);
+		count(row(summary.byPath, path), bytes, error, micros);
+		count(row(summary.byClient, client), bytes, error, micros);
+		if (micros >= 0)
+			summary.latency.record(micros * 1000);
+
+		if (summary.byPath.size() > 2 * MAX_KEYS)
+			prune(summary.byPath);
+		if (summary.byClient.size() > 2 * MAX_KEYS)
+			prune(summary.byClient);
+		return true;
+	}
+
+	private static void count(Row row, long bytes, boolean error, long micros) {
+		row.requests++;
+		if (bytes > 0)
+			row.bytes += bytes;
+		if (error)
+			row.errors++;
+		if (micros >= 0)
+			row.latency.record(micros);
+	}
+
+	private static <K> Row row(Map<K, Row> rows, K key) {
+		Row row = rows.get(key);
+		if (row == null) {
+			row = new Row();
+			rows.put(key, row);
+		}
+		return row;
+	}
+
+	/**
+	 * Folds all but the busiest {@link #MAX_KEYS} rows into
+	 * <tt>(other)</tt>.
+	 */
+	private static void prune(Map<String, Row> rows) {
+		if (rows.size() <= MAX_KEYS)
+			return;
+
+		long[] counts = new long[rows.size()];
+		int n = 0;
+		for (Row row : rows.values())
+			counts[n++] = row.requests;
+		Arrays.sort(counts);
+		long threshold = counts[counts.length - MAX_KEYS];
+
+		Row other = new Row();
+		int kept = 0;
+		Iterator<Map.Entry<String, Row>> it = rows.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Row> entry = it.next();
+			if (OTHER.equals(entry.getKey())) {
+				other.add(entry.getValue());
+				it.remove();
+			} else if (entry.getValue().requests < threshold
+					|| kept >= MAX_KEYS - 1) {
+				other.add(entry.getValue());
+				it.remove();
+			} else {
+				kept++;
+			}
+		}
+		rows.put(OTHER, other);
+	}
+
+	private static int indexOf(byte[] line, int from, int to, byte b) {
+		if (from < 0)
+			return -1;
+		for (int i = from; i < to; i++) {
+			if (line[i] == b)
+				return i;
+		}
+		return -1;
+	}
+
+	private static long parseNumber(byte[] line, int from, int to) {
+		long value = 0;
+		int i = from;
+		while (i < to && line[i] >= '0' && line[i] <= '9')
+			value = value * 10 + (line[i++] - '0');
+		return i == from ? -1 : value;
+	}
+
+	/**
+	 * Reads <tt>18/Oct/2013:21:36:04 +0000</tt>.
+	 *
+	 * @return the time in seconds since the epoch, or
+	 *         {@link Long#MIN_VALUE} if malformed
+	 */
+	private static long parseTime(byte[] line, int from, int to) {
+		if (to - from != 26)
+			return Long.MIN_VALUE;
+		String month = new String(line, from + 3, 3,
+				StandardCharsets.ISO_8859_1);
+		int m = 0;
+		while (m < MONTHS.length && !MONTHS[m].equals(month))
+			m++;
+		long offset = parseNumber(line, from + 22, from + 26);
+		if (m == MONTHS.length || offset < 0)
+			return Long.MIN_VALUE;
+		int offsetSeconds = (int) (offset / 100 * 3600 + offset % 100 * 60);
+		if (line[from + 21] == '-')
+			offsetSeconds = -offsetSeconds;
+		try {
+			return LocalDateTime.of((int) parseNumber(line, from + 7, from + 11),
+					m + 1, (int) parseNumber(line, from, from + 2),
+					(int) parseNumber(line, from + 12, from + 14),
+					(int) parseNumber(line, from + 15, from + 17),
+					(int) parseNumber(line, from + 18, from + 20))
+					.toEpochSecond(ZoneOffset.ofTotalSeconds(offsetSeconds));
+		} catch (RuntimeException e) {
+			return Long.MIN_VALUE;
+		}
+	}
+
+	private static void print(Summary summary, int top, PrintStream out) {
+		Row total = summary.total;
+		out.printf("Requests %d, bytes %d, 5xx rate %.3f%%%n",
+				total.requests, total.bytes, percent(total.errors,
+						total.requests));
+		out.printf("Latency p50 %s, p90 %s, p99 %s, p999 %s%n",
+				millis(summary.latency.getValueAtQuantile(0.5) / 1000),
+				millis(summary.latency.getValueAtQuantile(0.9) / 1000),
+				millis(summary.latency.getValueAtQuantile(0.99) / 1000),
+				millis(summary.latency.getValueAtQuantile(0.999) / 1000));
+		if (summary.skipped > 0)
+			out.printf("Skipped %d malformed lines%n", summary.skipped);
+
+		out.printf("%nBy status%n");
+		List<Integer> statuses = new ArrayList<Integer>(summary.byStatus
+				.keySet());
+		Collections.sort(statuses);
+		for (Integer status : statuses) {
+			Row row = summary.byStatus.get(status);
+			out.printf("  %3d %12d %6.2f%%%n", status, row.requests,
+					percent(row.requests, total.requests));
+		}
+
+		printTable("By path", summary.byPath, top, out);
+		printTable("By client", summary.byClient, top, out);
+	}
+
+	private static void printTable(String title, Map<String, Row> rows,
+			int top, PrintStream out) {
+		List<Map.Entry<String, Row>> entries = new ArrayList<Map.Entry<String, Row>>(
+				rows.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Row>>() {
+			@Override
+			public int compare(Map.Entry<String, Row> a,
+					Map.Entry<String, Row> b) {
+				return Long.compare(b.getValue().requests,
+						a.getValue().requests);
+			}
+		});
+
+		out.printf("%n%s%n  %12s %14s %8s %10s %10s  %s%n", title,
+				"requests", "bytes", "5xx", "p50", "p99", "key");
+		for (int i = 0; i < entries.size() && i < top; i++) {
+			Row row = entries.get(i).getValue();
+			out.printf("  %12d %14d %7.2f%% %10s %10s  %s%n", row.requests,
+					row.bytes, percent(row.errors, row.requests),
+					millis(row.latency.valueAtQuantile(0.5)),
+					millis(row.latency.valueAtQuantile(0.99)),
+					entries.get(i).getKey());
+		}
+	}
+
+	private static double percent(long part, long whole) {
+		return whole == 0 ? 0 : 100.0 * part / whole;
+	}
+
+	private static String millis(long micros) {
+		return String.format("%.2fms", micros / 1000.0);
+	}
+}
@@ -0,0 +1,305 @@
+/*
+ * AccessPolicy.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides who may access a path. The rules are read from a file with one
+ * rule per line, either a path followed by the users allowed to access it,
+ * or a '!' followed by a pattern nobody may access, e.g.
+ *
+ * <pre>
+ * /private.txt:bob
+ * /reports/:alice,bob
+ * /reports/2013/**:alice
+ * !*.bak
+ * !/internal/
+ * </pre>
+ *
+ * A path ending in a slash, or in <tt>/**</tt>, covers everything below that
+ * directory. Deny patterns are written as in {@link CachePolicy}. Paths
+ * containing <tt>passwd</tt> or <tt>permission</tt> are always denied, so
+ * the user and rule files cannot be fetched. A gzip sibling such as
+ * <tt>/private.txt.gz</tt> holds the content of its file, so it is never
+ * more open than the file is. Lines starting with '#' are ignored.
+ *
+ * The allow rules and the plain deny paths are compiled into a trie keyed by
+ * path segment, so a lookup costs one step per segment of the path however
+ * many rules there are. The deepest rule on the way wins, and an exact path
+ * beats the directory it is in; a denied directory denies everything below
+ * it. The decision for a path is remembered, so the deny globs are only
+ * matched the first time a path is seen.
+ */
+public class AccessPolicy {
+	private static final String[] ALWAYS_DENIED = { "**passwd**",
+			"**permission**" };
+	private static final int MAX_DECISIONS = 4096;
+
+	/**
+	 * What may be done with a path.
+	 */
+	public static class Decision {
+		static final Decision OPEN = new Decision(null);
+		static final Decision FORBIDDEN = new Decision(
+				Collections.<String> emptySet());
+
+		private final Set<String> users;
+
+		private Decision(Set<String> users) {
+			this.users = users;
+		}
+
+		/**
+		 * @return true if nobody may access the path
+		 */
+		public boolean isForbidden() {
+			return this == FORBIDDEN;
+		}
+
+		/**
+		 * @return true if only some users may access the path
+		 */
+		public boolean isRestricted() {
+			return users != null;
+		}
+
+		/**
+		 * @param user
+		 *            The authenticated user, or null.
+		 * @return true if the user may access the path
+		 */
+		public boolean permits(String user) {
+			if (users == null)
+				return true;
+			return user != null && users.contains(user);
+		}
+	}
+
+	/**
+	 * One segment of the path trie.
+	 */
+	private static class Node {
+		final Map<String, Node> children = new HashMap<String, Node>();
+		Decision exact;
+		Decision subtree;
+
+		Node child(String segment) {
+			Node node = children.get(segment);
+			if (node == null) {
+				node = new Node();
+				children.put(segment, node);
+			}
+			return node;
+		}
+	}
+
+	private final Node root;
+	private final List<Pattern> denied;
+	private final Map<String, Decision> decisions;
+
+	private AccessPolicy() {
+		root = new Node();
+		denied = new ArrayList<Pattern>();
+		for (String glob : ALWAYS_DENIED)
+			denied.add(CachePolicy.toRegex(glob));
+		decisions = Collections
+				.synchronizedMap(new LinkedHashMap<String, Decision>(256,
+						0.75f, true) {
+					private static final long serialVersionUID = 1L;
+
+					@Override
+					protected boolean removeEldestEntry(
+							Map.Entry<String, Decision> eldest) {
+						return size() > MAX_DECISIONS;
+					}
+				});
+	}
+
+	/**
+	 * Compiles the rules in the supplied file. Without the file only the
+	 * built in deny patterns apply.
+	 *
+	 * @param file
+	 *            The rule file.
+	 * @return the policy
+	 */
+	public static AccessPolicy load(File file) {
+		AccessPolicy policy = new AccessPolicy();
+		if (!file.exists()) {
+			System.out.println("No permissions file found");
+			return policy;
+		}
+
+		try {
+			Scanner s = new Scanner(file);
+			while (s.hasNextLine()) {
+				String line = s.nextLine().trim();
+				if (line.isEmpty() || line.charAt(0) == '#')
+					continue;
+				if (!policy.add(line))
+					System.err.println("Ignoring access rule: " + line);
+			}
+			s.close();
+		} catch (FileNotFoundException e) {
+			// shouldn't get here
+			e.printStackTrace();
+		}
+		return policy;
+	}
+
+	/**
+	 * Looks up what may be done with a path.
+	 *
+	 * @param path
+	 *            The normalized request path.
+	 * @return the decision
+	 */
+	public Decision evaluate(String path) {
+		Decision decision = decisions.get(path);
+		if (decision == null) {
+			decision = find(path);
+			if (path.endsWith(StaticPrecompressor.SUFFIX))
+				decision = stricter(decision, find(path.substring(0,
+						path.length() - StaticPrecompressor.SUFFIX.length())));
+			decisions.put(path, decision);
+		}
+		return decision;
+	}
+
+	private Decision find(String path) {
+		for (int i = 0; i < denied.size(); i++) {
+			if (denied.get(i).matcher(path).matches())
+				return Decision.FORBIDDEN;
+		}
+
+		Node node = root;
+		Decision decision = root.subtree;
+		if (decision == Decision.FORBIDDEN)
+			return decision;
+		int start = 1;
+		while (start < path.length()) {
+			int slash = path.indexOf('/', start);
+			if (slash < 0)
+				slash = path.length();
+			node = node.children.get(path.substring(start, slash));
+			if (node == null)
+				break;
+			if (node.subtree != null) {
+				decision = node.subtree;
+				if (decision == Decision.FORBIDDEN)
+					return decision;
+			}
+			start = slash + 1;
+		}
+		if (node != null && node.exact != null)
+			decision = node.exact;
+		return decision != null ? decision : Decision.OPEN;
+	}
+
+	/**
+	 * @return a decision that permits only what both decisions permit
+	 */
+	private static Decision stricter(Decision a, Decision b) {
+		if (a.isForbidden() || !b.isRestricted())
+			return a;
+		if (b.isForbidden() || !a.isRestricted())
+			return b;
+		Set<String> users = new HashSet<String>(a.users);
+		users.retainAll(b.users);
+		return users.isEmpty() ? Decision.FORBIDDEN : new Decision(users);
+	}
+
+	/**
+	 * Adds a rule line.
+	 *
+	 * @return false if the line is not a valid rule
+	 */
+	private boolean add(String line) {
+		if (line.charAt(0) == '!') {
+			String pattern = line.substring(1).trim();
+			if (pattern.isEmpty()
+					|| (pattern.charAt(0) != '/' && pattern.charAt(0) != '*'))
+				return false;
+			if (pattern.endsWith("/**")
+					&& pattern.indexOf('*') == pattern.length() - 2)
+				pattern = pattern.substring(0, pattern.length() - 2);
+			if (pattern.indexOf('*') >= 0)
+				denied.add(CachePolicy.toRegex(pattern));
+			else
+				put(pattern, Decision.FORBIDDEN);
+			return true;
+		}
+
+		int colon = line.indexOf(':');
+		if (colon < 0)
+			return false;
+		String pattern = line.substring(0, colon).trim();
+		if (pattern.endsWith("/**"))
+			pattern = pattern.substring(0, pattern.length() - 2);
+		if (pattern.isEmpty() || pattern.charAt(0) != '/'
+				|| pattern.indexOf('*') >= 0)
+			return false;
+
+		Set<String> users = new HashSet<String>();
+		for (String user : line.substring(colon + 1).split(",")) {
+			user = user.trim();
+			if (!user.isEmpty())
+				users.add(user);
+		}
+		if (users.isEmpty())
+			return false;
+		put(pattern, new Decision(users));
+		return true;
+	}
+
+	/**
+	 * Puts a decision into the trie, keeping the first of several rules for
+	 * the same path.
+	 */
+	private void put(String pattern, Decision decision) {
+		boolean directory = pattern.endsWith("/");
+		Node node = root;
+		for (String segment : pattern.split("/")) {
+			if (!segment.isEmpty())
+				node = node.child(segment);
+		}
+
+		if (directory) {
+			if (node.subtree == null)
+				node.subtree = decision;
+		} else if (node.exact == null) {
+			node.exact = decision;
+		}
+	}
+}
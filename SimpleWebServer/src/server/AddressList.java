@@ -0,0 +1,110 @@
+/*
+ * AddressList.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * A set of client addresses, such as the white or the black list, which the
+ * selector looks up for every readable connection. Lookups take no lock.
+ * Anything showing the list, like the application window, registers a
+ * {@link Listener} rather than the server holding on to a view.
+ */
+public class AddressList {
+	/**
+	 * Told about every change of the list, on the thread making it.
+	 */
+	public interface Listener {
+		void addressAdded(AddressList list, InetAddress address);
+
+		void addressRemoved(AddressList list, InetAddress address);
+	}
+
+	private final Set<InetAddress> addresses;
+	private final List<Listener> listeners;
+
+	public AddressList() {
+		this.addresses = Collections
+				.newSetFromMap(new ConcurrentHashMap<InetAddress, Boolean>());
+		this.listeners = new CopyOnWriteArrayList<Listener>();
+	}
+
+	public boolean contains(InetAddress address) {
+		return address != null && addresses.contains(address);
+	}
+
+	/**
+	 * @return true if the address was not on the list before
+	 */
+	public boolean add(InetAddress address) {
+		if (address == null || !addresses.add(address))
+			return false;
+		for (Listener listener : listeners)
+			listener.addressAdded(this, address);
+		return true;
+	}
+
+	/**
+	 * @return true if the address was on the list
+	 */
+	public boolean remove(InetAddress address) {
+		if (address == null || !addresses.remove(address))
+			return false;
+		for (Listener listener : listeners)
+			listener.addressRemoved(this, address);
+		return true;
+	}
+
+	/**
+	 * Makes the list hold exactly the given addresses, telling the listeners
+	 * only about what changed.
+	 */
+	public void set(List<InetAddress> addresses) {
+		for (InetAddress address : toList()) {
+			if (!addresses.contains(address))
+				remove(address);
+		}
+		for (InetAddress address : addresses)
+			add(address);
+	}
+
+	/**
+	 * @return a copy of the addresses on the list
+	 */
+	public List<InetAddress> toList() {
+		return new ArrayList<InetAddress>(addresses);
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+}
@@ -3,39 +3,106 @@ package server;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SocketChannel;
 
+import protocol.ChannelIO;
+import protocol.Protocol;
+
+/**
+ * Reads from a non-blocking socket channel through a buffer, waiting for the
+ * client when no data has arrived yet. A request body can be moved from the
+ * socket into a file without passing through the stream, see
+ * {@link #transferTo(FileChannel, long, long)}.
+ */
 public class ByteBufferInputStreamAdapter extends InputStream {
 
 	private ByteBuffer byteBuffer;
 	private SocketChannel channel;
-	
+
 	public ByteBufferInputStreamAdapter(SocketChannel channel) {
-		this.byteBuffer = ByteBuffer.allocate(10);
+		this.byteBuffer = ByteBuffer.allocate(Protocol.CHUNK_LENGTH);
 		this.channel = channel;
-		try {
-			this.channel.read(this.byteBuffer);
-			this.byteBuffer.rewind();
-		} catch (IOException e) {
-			
-		}
+		// Nothing buffered yet
+		this.byteBuffer.flip();
 	}
-	
+
 	@Override
 	public int read() throws IOException {
+		if (!fill())
+			return -1;
+		return this.byteBuffer.get() & 0xff;
+	}
+
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (len == 0)
+			return 0;
+		if (!fill())
+			return -1;
+		int n = Math.min(len, this.byteBuffer.remaining());
+		this.byteBuffer.get(b, off, n);
+		return n;
+	}
+
+	@Override
+	public int available() {
+		return this.byteBuffer.remaining();
+	}
+
+	/**
+	 * Whether the client closed its end of the connection with nothing left
+	 * to read.
+	 *
+	 * @return true at the end of the stream
+	 * @throws IOException
+	 *             If reading fails.
+	 */
+	public boolean atEnd() throws IOException {
+		return !fill();
+	}
+
+	/**
+	 * Moves the next bytes of the stream into a file. What is buffered
+	 * already is written first, the rest goes from the socket to the file
+	 * directly.
+	 *
+	 * @param file
+	 *            The file to write to.
+	 * @param position
+	 *            The position in the file of the first byte.
+	 * @param count
+	 *            The number of bytes to move.
+	 * @throws IOException
+	 *             If the stream ends early, or if reading or writing fails.
+	 */
+	public void transferTo(FileChannel file, long position, long count)
+			throws IOException {
 		if (this.byteBuffer.hasRemaining()) {
-			int result = this.byteBuffer.get();
-			if (!this.byteBuffer.hasRemaining()) {
-				byteBuffer.clear();
-				int bytesRead = channel.read(this.byteBuffer);
-				if (bytesRead < 0) {
-					return bytesRead;
-				}
-				this.byteBuffer.rewind();
-			}
-			return result;
+			ByteBuffer buffered = this.byteBuffer.duplicate();
+			int n = (int) Math.min(buffered.remaining(), count);
+			buffered.limit(buffered.position() + n);
+			while (buffered.hasRemaining())
+				position += file.write(buffered, position);
+			this.byteBuffer.position(this.byteBuffer.position() + n);
+			count -= n;
 		}
-		return -1;
+		if (count > 0)
+			ChannelIO.receive(this.channel, file, position, count);
+	}
+
+	/**
+	 * Makes sure there is something in the buffer.
+	 *
+	 * @return false at the end of the stream
+	 */
+	private boolean fill() throws IOException {
+		if (this.byteBuffer.hasRemaining())
+			return true;
+		this.byteBuffer.clear();
+		int bytesRead = ChannelIO.read(this.channel, this.byteBuffer);
+		this.byteBuffer.flip();
+		return bytesRead > 0;
 	}
 
 }
@@ -5,6 +5,8 @@ import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
 
+import protocol.ChannelIO;
+
 public class ByteBufferOutputStreamAdapter extends OutputStream {
 	
 	private ByteBuffer byteBuffer;
@@ -15,12 +17,25 @@ public class ByteBufferOutputStreamAdapter extends OutputStream {
 		byteBuffer = ByteBuffer.allocate(1);
 	}
 
+	/**
+	 * @return the channel written to
+	 */
+	public SocketChannel getChannel() {
+		return channel;
+	}
+
 	@Override
 	public void write(int arg0) throws IOException {
 		byteBuffer.put((byte)arg0);
 		byteBuffer.flip();
-		channel.write(byteBuffer);
+		ChannelIO.write(channel, byteBuffer);
 		byteBuffer.clear();
 	}
 
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		// The channel is non-blocking, so it may take only part of the data
+		ChannelIO.write(channel, ByteBuffer.wrap(b, off, len));
+	}
+
 }
@@ -0,0 +1,292 @@
+/*
+ * CachePolicy.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+import java.util.regex.Pattern;
+
+import protocol.HttpDate;
+import protocol.HttpResponse;
+import protocol.Protocol;
+
+/**
+ * Decides the <tt>Cache-Control</tt> and <tt>Expires</tt> header fields of
+ * file responses by request path. The rules are read from a file with one
+ * rule per line, a pattern followed by its directives, e.g.
+ *
+ * <pre>
+ * /assets/        max-age=31536000 immutable
+ * *.html          no-cache
+ * /private/**     no-store
+ * /docs/*.pdf     max-age=3600 must-revalidate
+ * </pre>
+ *
+ * A pattern ending in a slash, or in <tt>/**</tt>, covers everything below
+ * that directory. <tt>*.ext</tt> covers every file with that extension, any
+ * other pattern with a <tt>*</tt> is a glob where <tt>*</tt> stays within
+ * one path segment and <tt>**</tt> does not, and anything else is an exact
+ * path. Patterns start with a slash or a <tt>*</tt>. Lines starting with '#'
+ * are ignored.
+ *
+ * The rules are compiled once into lookup tables, and the header line of
+ * every rule is encoded up front. When several rules match, the most
+ * specific one wins: an exact path, then the longest directory, then the
+ * extension, then the remaining globs in the order they were written.
+ */
+public class CachePolicy {
+	private static final String[] DIRECTIVES = { "public", "private",
+			"no-cache", "no-store", "must-revalidate", "proxy-revalidate",
+			"immutable", "no-transform" };
+
+	/**
+	 * The header fields of one rule.
+	 */
+	private static class Rule {
+		final String value;
+		final byte[] line;
+		final long maxAge;
+
+		Rule(String value, long maxAge) {
+			this.value = value;
+			this.line = (Protocol.CACHE_CONTROL + Protocol.SEPERATOR
+					+ Protocol.SPACE + value + Protocol.CRLF).getBytes();
+			this.maxAge = maxAge;
+		}
+	}
+
+	private final Map<String, Rule> exact;
+	private final List<String> prefixes;
+	private final Map<String, Rule> byPrefix;
+	private final Map<String, Rule> byExtension;
+	private final List<Pattern> globs;
+	private final List<Rule> byGlob;
+
+	private CachePolicy() {
+		exact = new HashMap<String, Rule>();
+		prefixes = new ArrayList<String>();
+		byPrefix = new HashMap<String, Rule>();
+		byExtension = new HashMap<String, Rule>();
+		globs = new ArrayList<Pattern>();
+		byGlob = new ArrayList<Rule>();
+	}
+
+	/**
+	 * Compiles the rules in the supplied file. Without the file no caching
+	 * header fields are sent at all.
+	 *
+	 * @param file
+	 *            The rule file.
+	 * @return the policy
+	 */
+	public static CachePolicy load(File file) {
+		CachePolicy policy = new CachePolicy();
+		if (!file.exists())
+			return policy;
+
+		try {
+			Scanner s = new Scanner(file);
+			while (s.hasNextLine()) {
+				String line = s.nextLine().trim();
+				if (line.isEmpty() || line.charAt(0) == '#')
+					continue;
+				String[] splitLine = line.split("\\s+");
+				Rule rule = compile(splitLine);
+				char first = splitLine[0].charAt(0);
+				if (rule == null || (first != '/' && first != '*')) {
+					System.err.println("Ignoring cache rule: " + line);
+					continue;
+				}
+				policy.add(splitLine[0], rule);
+			}
+			s.close();
+		} catch (FileNotFoundException e) {
+			// shouldn't get here
+			e.printStackTrace();
+		}
+
+		// Longest directory first, so the first hit is the most specific
+		Collections.sort(policy.prefixes, new Comparator<String>() {
+			@Override
+			public int compare(String a, String b) {
+				return b.length() - a.length();
+			}
+		});
+		return policy;
+	}
+
+	/**
+	 * Adds the caching header fields for a path to a response.
+	 *
+	 * @param path
+	 *            The normalized request path.
+	 * @param response
+	 *            A 200, 206 or 304 response for the path.
+	 */
+	public void apply(String path, HttpResponse response) {
+		Rule rule = find(path);
+		if (rule == null)
+			return;
+
+		response.put(Protocol.CACHE_CONTROL, rule.value, rule.line);
+		if (rule.maxAge >= 0) {
+			// For HTTP/1.0 caches, newer ones go by max-age
+			response.put(Protocol.EXPIRES, HttpDate.format(System
+					.currentTimeMillis() + rule.maxAge * 1000));
+		}
+	}
+
+	private Rule find(String path) {
+		Rule rule = exact.get(path);
+		if (rule != null)
+			return rule;
+
+		for (int i = 0; i < prefixes.size(); i++) {
+			String prefix = prefixes.get(i);
+			if (path.startsWith(prefix) || path.equals(prefix.substring(0,
+					prefix.length() - 1)))
+				return byPrefix.get(prefix);
+		}
+
+		if (!byExtension.isEmpty()) {
+			int dot = path.lastIndexOf('.');
+			if (dot > path.lastIndexOf('/')) {
+				rule = byExtension.get(path.substring(dot + 1).toLowerCase());
+				if (rule != null)
+					return rule;
+			}
+		}
+
+		for (int i = 0; i < globs.size(); i++) {
+			if (globs.get(i).matcher(path).matches())
+				return byGlob.get(i);
+		}
+		return null;
+	}
+
+	private void add(String pattern, Rule rule) {
+		if (pattern.endsWith("/**"))
+			pattern = pattern.substring(0, pattern.length() - 2);
+
+		if (pattern.startsWith("*.") && pattern.indexOf('*', 1) < 0
+				&& pattern.indexOf('/') < 0) {
+			putIfAbsent(byExtension, pattern.substring(2).toLowerCase(), rule);
+		} else if (pattern.indexOf('*') >= 0) {
+			globs.add(toRegex(pattern));
+			byGlob.add(rule);
+		} else if (pattern.endsWith("/")) {
+			if (putIfAbsent(byPrefix, pattern, rule))
+				prefixes.add(pattern);
+		} else {
+			putIfAbsent(exact, pattern, rule);
+		}
+	}
+
+	/**
+	 * Keeps the first of several rules for the same pattern.
+	 */
+	private static boolean putIfAbsent(Map<String, Rule> map, String key,
+			Rule rule) {
+		if (map.containsKey(key))
+			return false;
+		map.put(key, rule);
+		return true;
+	}
+
+	/**
+	 * Checks the directives of a rule line and joins them into a header
+	 * value.
+	 *
+	 * @return the rule, or null if a directive is unknown
+	 */
+	private static Rule compile(String[] splitLine) {
+		if (splitLine.length < 2)
+			return null;
+
+		StringBuilder value = new StringBuilder();
+		long maxAge = -1;
+		for (int i = 1; i < splitLine.length; i++) {
+			String directive = splitLine[i].toLowerCase();
+			if (directive.startsWith("max-age=")
+					|| directive.startsWith("s-maxage=")) {
+				long seconds;
+				try {
+					seconds = Long.parseLong(directive.substring(directive
+							.indexOf('=') + 1));
+				} catch (NumberFormatException e) {
+					return null;
+				}
+				if (seconds < 0)
+					return null;
+				if (directive.charAt(0) == 'm')
+					maxAge = seconds;
+			} else if (!isDirective(directive)) {
+				return null;
+			}
+
+			if (value.length() > 0)
+				value.append(", ");
+			value.append(directive);
+		}
+
+		// Nothing may be kept, so there is nothing to expire
+		if (value.indexOf("no-store") >= 0)
+			maxAge = -1;
+		return new Rule(value.toString(), maxAge);
+	}
+
+	private static boolean isDirective(String directive) {
+		for (String known : DIRECTIVES) {
+			if (known.equals(directive))
+				return true;
+		}
+		return false;
+	}
+
+	static Pattern toRegex(String glob) {
+		StringBuilder regex = new StringBuilder();
+		int start = 0;
+		for (int i = 0; i < glob.length(); i++) {
+			if (glob.charAt(i) != '*')
+				continue;
+			regex.append(Pattern.quote(glob.substring(start, i)));
+			if (i + 1 < glob.length() && glob.charAt(i + 1) == '*') {
+				regex.append(".*");
+				i++;
+			} else {
+				regex.append("[^/]*");
+			}
+			start = i + 1;
+		}
+		regex.append(Pattern.quote(glob.substring(start)));
+		if (glob.charAt(0) != '/')
+			regex.insert(0, "(?:.*/)?");
+		return Pattern.compile(regex.toString());
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * ConfigWatcher.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the configuration file of a running {@link Server} again whenever it
+ * changes and hands the result to {@link Server#reconfigure(ServerConfig)}. The command line pairs the
+ * server was started with keep overriding the file.
+ *
+ * The file is read the same way as at startup, so a key taken out of it
+ * goes back to its default and a line with a bad value is ignored. A
+ * missing file leaves the server as it is.
+ */
+public class ConfigWatcher {
+	/**
+	 * How long to wait for more changes before reloading, so a file that is
+	 * written in several steps is read once, when complete.
+	 */
+	private static final long SETTLE_TIME = 200; // milliseconds
+
+	/**
+	 * How often to look at the file when no watch service is available.
+	 */
+	private static final long POLL_INTERVAL = 5000; // milliseconds
+
+	private final Server server;
+	private final File file;
+	private final String[] overrides;
+	private volatile boolean stopped;
+	private long lastModified;
+	private WatchService watcher;
+	private Thread thread;
+
+	/**
+	 * @param server
+	 *            The server to reconfigure.
+	 * @param file
+	 *            The configuration file it was started with.
+	 * @param overrides
+	 *            The <tt>key=value</tt> pairs it was started with.
+	 */
+	public ConfigWatcher(Server server, File file, String[] overrides) {
+		this.server = server;
+		this.file = file.getAbsoluteFile();
+		this.overrides = overrides;
+		this.lastModified = this.file.lastModified();
+	}
+
+	/**
+	 * Starts watching the file.
+	 */
+	public synchronized void start() {
+		try {
+			watcher = file.toPath().getFileSystem().newWatchService();
+			file.getParentFile().toPath().register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+		} catch (IOException e) {
+			// Polling will do
+			e.printStackTrace();
+			watcher = null;
+		}
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		}, "config-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the file.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+		}
+		if (thread != null)
+			thread.interrupt();
+	}
+
+	/**
+	 * Reads the file and applies it, even if it did not change.
+	 */
+	public synchronized void reload() {
+		if (!file.exists()) {
+			System.err.println("Keeping the configuration, " + file
+					+ " is missing");
+			return;
+		}
+		lastModified = file.lastModified();
+
+		ServerConfig next = ServerConfig.load(file).with(overrides);
+		List<String> restart = server.reconfigure(next);
+		if (!restart.isEmpty())
+			System.err.println("Restart to change " + restart);
+	}
+
+	private void processEvents() {
+		while (!stopped) {
+			try {
+				if (watcher == null) {
+					Thread.sleep(POLL_INTERVAL);
+					if (file.lastModified() == lastModified)
+						continue;
+				} else {
+					WatchKey key = watcher.take();
+					boolean relevant = false;
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW
+								|| ((Path) event.context()).getFileName()
+										.toString().equals(file.getName()))
+							relevant = true;
+					}
+					key.reset();
+					if (!relevant)
+						continue;
+
+					// Let the writer finish, then drop what piled up meanwhile
+					Thread.sleep(SETTLE_TIME);
+					while ((key = watcher.poll(0, TimeUnit.MILLISECONDS)) != null) {
+						key.pollEvents();
+						key.reset();
+					}
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			try {
+				reload();
+			} catch (RuntimeException e) {
+				// Keep the old configuration and keep watching
+				e.printStackTrace();
+			}
+		}
+	}
+}
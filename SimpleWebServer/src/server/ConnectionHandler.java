@@ -22,21 +22,24 @@
 package server;
 
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
+import java.io.IOException;
 import java.io.OutputStream;
-import java.io.UnsupportedEncodingException;
-import java.math.BigInteger;
+import java.net.InetAddress;
+import java.nio.channels.FileChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.Map;
-import java.util.Scanner;
 
+import protocol.AcceptEncoding;
+import protocol.ByteRange;
+import protocol.ChannelIO;
+import protocol.EntityTag;
+import protocol.HttpDate;
 import protocol.HttpRequest;
 import protocol.HttpResponse;
 import protocol.HttpResponseFactory;
@@ -56,12 +59,25 @@ public class ConnectionHandler implements Runnable {
 	private SelectionKey selKey;
 	private SocketChannel socket;
 	private String authenticatedUser;
+	private boolean staleNonce;
+	private boolean bodyConsumed;
+	private boolean closeAfterResponse;
+	private final RequestEvents.Queued queuedEvent;
+	private RequestEvents.Request requestEvent;
+	private final RequestTimer timer;
+	private ServerConfig settings;
+
+	private static final byte[] CONTINUE = (Protocol.VERSION + " 100 Continue"
+			+ Protocol.CRLF + Protocol.CRLF).getBytes();
 
 	public ConnectionHandler(Server server, SelectionKey selKey) {
 		this.server = server;
 		this.selKey = selKey;
 		this.socket = (SocketChannel) selKey.channel();
 		authenticatedUser = null;
+		this.timer = new RequestTimer();
+		this.queuedEvent = new RequestEvents.Queued();
+		this.queuedEvent.begin();
 	}
 
 	/**
@@ -79,9 +95,21 @@ public class ConnectionHandler implements Runnable {
 	 */
 	public void run() {
 		// Get the start time
-		long start = System.currentTimeMillis();
+		long start = System.nanoTime();
+		// Whatever is reloaded meanwhile applies from the next request on
+		settings = server.getConfig();
+		ChannelIO.setTimeouts(settings.getReadTimeout(),
+				settings.getWriteTimeout());
+		timer.lap(RequestTimer.QUEUE);
+		queuedEvent.end();
+		if (queuedEvent.shouldCommit()) {
+			queuedEvent.client = clientAddress();
+			queuedEvent.commit();
+		}
+		requestEvent = new RequestEvents.Request();
+		requestEvent.begin();
 
-		InputStream inStream = null;
+		ByteBufferInputStreamAdapter inStream = null;
 		OutputStream outStream = null;
 
 		try {
@@ -93,24 +121,33 @@ public class ConnectionHandler implements Runnable {
 			// May be have text to log this for further analysis?
 			e.printStackTrace();
 
-			// Increment number of connections by 1
-			server.incrementConnections(1);
-			// Get the end time
-			long end = System.currentTimeMillis();
-			this.server.incrementServiceTime(end - start);
+			record(start, null, null);
 			this.selKey.interestOps(this.selKey.interestOps()
 					| SelectionKey.OP_READ);
 			this.selKey.selector().wakeup();
 			return;
 		}
 
+		// A readable connection with nothing to read was closed by the
+		// client, so it is done
+		try {
+			if (inStream.atEnd()) {
+				this.socket.close();
+				this.selKey.selector().wakeup();
+				return;
+			}
+		} catch (IOException e) {
+			// Let reading the request run into it again
+		}
+
 		// At this point we have the input and output stream of the socket
 		// Now lets create a HttpRequest object
 		HttpRequest request = null;
 		HttpResponse response = null;
+		RequestEvents.Parse parseEvent = new RequestEvents.Parse();
+		parseEvent.begin();
 		try {
 			request = HttpRequest.read(inStream);
-			System.out.println(request);
 		} catch (ProtocolException pe) {
 			// We have some sort of protocol exception. Get its status code and
 			// create response
@@ -131,27 +168,29 @@ public class ConnectionHandler implements Runnable {
 			// For any other error, we will create bad request response as well
 			response = HttpResponseFactory.create400BadRequest(Protocol.CLOSE);
 		}
-
-		this.selKey.interestOps(this.selKey.interestOps()
-				| SelectionKey.OP_READ);
-		this.selKey.selector().wakeup();
+		parseEvent.end();
+		timer.lap(RequestTimer.PARSE);
+		if (parseEvent.shouldCommit()) {
+			if (request != null) {
+				parseEvent.method = request.getMethod();
+				parseEvent.uri = request.getUri();
+			}
+			parseEvent.status = response == null ? 0 : response.getStatus();
+			parseEvent.commit();
+		}
 
 		if (response != null) {
 			// Means there was an error, now write the response object to the
 			// socket
 			try {
-				response.write(outStream);
+				write(response, request, outStream, null);
 				// System.out.println(response);
 			} catch (Exception e) {
 				// We will ignore this exception
 				e.printStackTrace();
 			}
 
-			// Increment number of connections by 1
-			server.incrementConnections(1);
-			// Get the end time
-			long end = System.currentTimeMillis();
-			this.server.incrementServiceTime(end - start);
+			finish(start, request, response);
 			return;
 		}
 
@@ -167,95 +206,80 @@ public class ConnectionHandler implements Runnable {
 				// "request.version" string ignoring the case of the letters in
 				// both strings
 				// TODO: Fill in the rest of the code here
-			} else if (!request.getMethod().equalsIgnoreCase(Protocol.GET)) {
-				response = HttpResponseFactory
-						.create505NotSupported(Protocol.CLOSE);
-			} else if (request.getMethod().equalsIgnoreCase(Protocol.GET)) {
+			} else if (request.getMethod().equalsIgnoreCase(Protocol.GET)
+					|| isUpload(request.getMethod())) {
+				boolean upload = isUpload(request.getMethod());
 				Map<String, String> header = request.getHeader();
-				String date = header.get("if-modified-since");
-				Date dateResult = null;
-				if (date != null) {
-					DateFormat df = new SimpleDateFormat(
-							"EEE MMM dd yyyy kk:mm:ss z");
-					try {
-					dateResult = df.parse(date);
-					}catch (java.text.ParseException e){
-						dateResult = new Date();
-					}
+				// The same users and rules throughout, even if reloaded
+				SecuritySnapshot security = server.getSecurity();
+				// Map the request URI to a file below the root directory
+				Resource resource = null;
+				try {
+					resource = server.getResourceResolver().resolve(
+							request.getUri());
+				} catch (ProtocolException pe) {
+					if (pe.getStatus() == Protocol.FORBIDDEN_CODE)
+						response = HttpResponseFactory
+								.create403Forbidden(Protocol.CLOSE);
+					else
+						response = HttpResponseFactory
+								.create400BadRequest(Protocol.CLOSE);
 				}
+				timer.lap(RequestTimer.RESOLVE);
 
 				// authenticate user
 				String authenString = header.get("authorization");
-				if (authenticatedUser == null && authenString != null) {
-					authenticateUser(authenString, request.getUri());
+				if (resource != null && authenticatedUser == null
+						&& authenString != null) {
+					authenticateUser(security, authenString, request.getMethod(),
+							request.getUri());
 				}
 
 				// check for needs authentication
-				if (passedAuthentication(request.getUri())) {
-
-					// String hostName = header.get("host");
-					//
-					// Handling GET request here
-					// Get relative URI path from request
-					String uri = request.getUri();
-					// Get root directory path from server
-					String rootDirectory = server.getRootDirectory();
-					// Combine them together to form absolute file path
-					File file = new File(rootDirectory + uri);
-
-					// Check if the file exists
-					if (file.exists()) {
-						if (uri.contains("passwd") || uri.contains("permission")){
-							response = HttpResponseFactory.create403Forbidden(Protocol.CLOSE);
-						}
-						else if (file.isDirectory()) {
-							// Look for default index.html file in a directory
-							String location = rootDirectory + uri
-									+ System.getProperty("file.separator")
-									+ Protocol.DEFAULT_FILE;
-							file = new File(location);
-							if (file.exists()) {
-								if (date != null
-										&& dateResult.after(new Date(file
-												.lastModified())))// create a
-																	// 304NotMOdified
-									response = HttpResponseFactory
-											.create304NotModified(Protocol.CLOSE);
-								else
-									// Lets create 200 OK response
-									response = HttpResponseFactory.create200OK(
-											file, Protocol.CLOSE);
-							} else {
-								// File does not exist so lets create 404 file
-								// not
-								// found code
-								response = HttpResponseFactory
-										.create404NotFound(Protocol.CLOSE);
-							}
-						} else { // Its a file
-							if (date != null
-									&& dateResult.after(new Date(file
-											.lastModified())))// create a
-																// 304NotMOdified
-								response = HttpResponseFactory
-										.create304NotModified(Protocol.CLOSE);
-							else
-								// Lets create 200 OK response
-								response = HttpResponseFactory.create200OK(
-										file, Protocol.CLOSE);
-						}
-					} else {
+				AccessPolicy.Decision access = resource == null ? null
+						: security.getAccessPolicy().evaluate(resource.getPath());
+				timer.lap(RequestTimer.AUTH);
+				if (resource == null) {
+					// response already set while resolving
+				} else if (access.isForbidden()) {
+					response = HttpResponseFactory
+							.create403Forbidden(Protocol.CLOSE);
+				} else if (upload && authenticatedUser == null) {
+					// Only known users may change the content
+					response = createUnauthorizedResponse();
+				} else if (access.permits(authenticatedUser)) {
+					// The metrics path is ours, not the document root's
+					if (resource.getPath().equals(settings.getMetricsPath())) {
+						response = upload ? HttpResponseFactory
+								.create403Forbidden(Protocol.CLOSE)
+								: HttpResponseFactory.create200OK(server
+										.getMetricsExporter().render(),
+										MetricsExporter.CONTENT_TYPE,
+										Protocol.CLOSE);
+					} else if (upload) {
+						response = createUploadResponse(header, resource,
+								inStream, outStream);
+					} else if (!resource.exists()) {
 						// File does not exist so lets create 404 file not found
 						// code
 						response = HttpResponseFactory
 								.create404NotFound(Protocol.CLOSE);
+					} else {
+						response = createFileResponse(header, resource);
 					}
 				} else {
 					// failed authentication
-					response = HttpResponseFactory
-							.create401Unauthorized(Protocol.CLOSE);
+					response = createUnauthorizedResponse();
 				}
+				timer.lap(upload ? RequestTimer.BODY : RequestTimer.CACHE);
 
+				// A body left on the connection would be taken for the next
+				// request
+				if (upload && !bodyConsumed)
+					closeAfterResponse = true;
+			} else {
+				response = HttpResponseFactory
+						.create501NotImplemented(Protocol.CLOSE);
 			}
 
 		} catch (Exception e) {
@@ -271,100 +295,352 @@ public class ConnectionHandler implements Runnable {
 
 		try {
 			// Write response and we are all done so close the socket
-			response.write(outStream);
+			write(response, request, outStream, this.socket);
 			// System.out.println(response);
-			// socket.close();
+			if (closeAfterResponse)
+				socket.close();
 		} catch (Exception e) {
 			// We will ignore this exception
 			e.printStackTrace();
+			// but not the connection, which is part way through a response
+			// and cannot carry another one
+			try {
+				socket.close();
+			} catch (IOException ioe) {
+			}
 		}
 
-		// Increment number of connections by 1
-		server.incrementConnections(1);
-		// Get the end time
-		long end = System.currentTimeMillis();
-		this.server.incrementServiceTime(end - start);
+		finish(start, request, response);
 	}
 
-	private boolean passedAuthentication(String uri) {
-		// check to see is the uri is controlled
-		if (server.needsPermission(uri)) {
-			String[] allowedUsers = server.getUsersForUri(uri);
-			for (String u : allowedUsers) {
-				if (u.equals(authenticatedUser))
-					return true;
+	/**
+	 * Hands the connection back to the selector for its next request, and
+	 * records the time this one took.
+	 */
+	private void finish(long start, HttpRequest request,
+			HttpResponse response) {
+		// A closed socket is only let go of by the next select
+		if (this.selKey.isValid())
+			this.selKey.interestOps(this.selKey.interestOps()
+					| SelectionKey.OP_READ);
+		this.selKey.selector().wakeup();
+
+		record(start, request, response);
+	}
+
+	/**
+	 * Counts the request in the metrics and writes it to the access log, and
+	 * to the slow request log if it took long.
+	 */
+	private void record(long start, HttpRequest request, HttpResponse response) {
+		long nanos = System.nanoTime() - start;
+		int status = response == null ? 0 : response.getStatus();
+		long length = response == null ? 0 : bodyLength(response);
+		server.getMetrics().record(status, length, nanos);
+
+		if (requestEvent != null) {
+			requestEvent.end();
+			if (requestEvent.shouldCommit()) {
+				requestEvent.client = clientAddress();
+				if (request != null) {
+					requestEvent.method = request.getMethod();
+					requestEvent.uri = request.getUri();
+				}
+				requestEvent.status = status;
+				requestEvent.bytes = length;
+				requestEvent.user = authenticatedUser;
+				requestEvent.commit();
 			}
-			return false;
-		} else {
-			return true;
 		}
+
+		Map<String, String> header = request == null ? null : request
+				.getHeader();
+		server.getAccessLog().log(socket.socket().getInetAddress(),
+				authenticatedUser,
+				request == null ? null : request.getMethod(),
+				request == null ? null : request.getUri(),
+				request == null ? null : request.getVersion(), status, length,
+				header == null ? null : header.get("referer"),
+				header == null ? null : header.get("user-agent"), nanos);
+
+		server.getSlowRequestLog().log(timer, settings.getSlowThreshold(),
+				settings.getSlowSampleRate(), clientAddress(),
+				request == null ? null : request.getMethod() + " "
+						+ request.getUri() + " " + request.getVersion(),
+				status, length);
 	}
 
-	private void authenticateUser(String authorizationString, String uri) {
-		try {
+	/**
+	 * Sends the response, as a flight recorder event of its own.
+	 */
+	private void write(HttpResponse response, HttpRequest request,
+			OutputStream outStream, SocketChannel channel) throws Exception {
+		RequestEvents.Transfer event = new RequestEvents.Transfer();
+		event.begin();
+		response.write(outStream, channel);
+		timer.lap(RequestTimer.WRITE);
+		event.end();
+		if (event.shouldCommit()) {
+			event.uri = request == null ? null : request.getUri();
+			event.status = response.getStatus();
+			event.bytes = bodyLength(response);
+			event.commit();
+		}
+	}
 
-			String username = parseString(authorizationString, "username");
-			String realm = parseString(authorizationString, "realm");
-			String password;
+	private String clientAddress() {
+		InetAddress address = socket.socket().getInetAddress();
+		return address == null ? null : address.getHostAddress();
+	}
 
-			password = server.getPasswd(username);
+	/**
+	 * @return the length of the response body, or -1 if it is streamed
+	 */
+	private static long bodyLength(HttpResponse response) {
+		Map<String, String> header = response.getHeader();
+		if (header.containsKey(Protocol.TRANSFER_ENCODING))
+			return -1;
+		String length = header.get(Protocol.CONTENT_LENGTH);
+		if (length == null)
+			return 0;
+		try {
+			return Long.parseLong(length);
+		} catch (NumberFormatException e) {
+			return -1;
+		}
+	}
 
-			String hashString = username + ":" + realm + ":" + password;
+	private static boolean isUpload(String method) {
+		return method.equalsIgnoreCase(Protocol.PUT)
+				|| method.equalsIgnoreCase(Protocol.POST);
+	}
 
-			MessageDigest md = MessageDigest.getInstance("MD5");
-			byte[] hash1 = md.digest(hashString.getBytes("UTF-8"));
-			String shash1 = new BigInteger(1, hash1).toString(16);
+	/**
+	 * Stores the request body at the resource path. The body goes to a
+	 * hidden file next to the target first, which then replaces the target
+	 * in one atomic rename, so readers never see a partial file.
+	 */
+	private HttpResponse createUploadResponse(Map<String, String> header,
+			Resource resource, ByteBufferInputStreamAdapter inStream,
+			OutputStream outStream) throws IOException {
+		FileMetadataTree tree = server.getMetadataTree();
+		String path = resource.getPath();
+		if (resource.isDirectory() || path.equals("/")
+				|| tree.isExcluded(path))
+			return HttpResponseFactory.create403Forbidden(Protocol.CLOSE);
+		FileMetadata parent = tree.get(path.substring(0,
+				Math.max(1, path.lastIndexOf('/'))));
+		if (parent == null || !parent.isDirectory())
+			return HttpResponseFactory.createEmpty(Protocol.CONFLICT_CODE,
+					Protocol.CONFLICT_TEXT, Protocol.CLOSE);
+
+		RequestBody body;
+		try {
+			body = new RequestBody(inStream, header,
+					settings.getMaxUploadLength());
+		} catch (ProtocolException pe) {
+			return HttpResponseFactory.createEmpty(pe.getStatus(),
+					pe.getMessage(), Protocol.CLOSE);
+		}
 
-			String get = "GET";
-			String hash2 = new BigInteger(1, md.digest((get + ":" + uri)
-					.getBytes("UTF-8"))).toString(16);
+		// The client may be waiting for our go before sending the body
+		String expect = header.get("expect");
+		if (expect != null) {
+			if (!expect.equalsIgnoreCase(Protocol.CONTINUE))
+				return HttpResponseFactory.createEmpty(
+						Protocol.EXPECTATION_FAILED_CODE,
+						Protocol.EXPECTATION_FAILED_TEXT, Protocol.CLOSE);
+			outStream.write(CONTINUE);
+			outStream.flush();
+		}
 
-			System.out.println("hash1 = " + shash1 + "\nhash2 = " + hash2);
+		File target = tree.toFile(path);
+		Path temp = target.toPath().resolveSibling(
+				"." + target.getName() + "." + Thread.currentThread().getId());
+		boolean existed = resource.exists();
+		try {
+			FileChannel file = FileChannel.open(temp,
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				body.transferTo(file);
+			} finally {
+				file.close();
+			}
+			bodyConsumed = true;
+			Files.move(temp, target.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (ProtocolException pe) {
+			return HttpResponseFactory.createEmpty(pe.getStatus(),
+					pe.getMessage(), Protocol.CLOSE);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
 
-			// build the final string for our MD5
-			StringBuilder sb = new StringBuilder();
-			sb.append(shash1);
-			sb.append(":");
-			sb.append(parseString(authorizationString, "nonce"));
-			sb.append(":");
-			sb.append(parseString(authorizationString, "nc"));
-			sb.append(":");
-			sb.append(parseString(authorizationString, "cnonce"));
-			sb.append(":");
-			sb.append(parseString(authorizationString, "qop"));
-			sb.append(":");
-			sb.append(hash2);
+		// Drop whatever is cached for the path before we answer
+		tree.refresh(path);
+
+		if (existed)
+			return HttpResponseFactory.create204NoContent(Protocol.CLOSE);
+		return HttpResponseFactory.create201Created(path, Protocol.CLOSE);
+	}
 
-			String finalHash = new BigInteger(1, md.digest(sb.toString()
-					.getBytes("UTF-8"))).toString(16);
+	/**
+	 * Creates the response for an existing file, negotiating the content
+	 * coding and evaluating the conditional and range header fields.
+	 */
+	private HttpResponse createFileResponse(Map<String, String> header,
+			Resource resource) {
+		ContentCompressor compressor = server.getContentCompressor();
+		boolean compressible = compressor.isCompressible(resource);
+
+		// Ranges always refer to the file as is, so never compress those
+		String encoding = null;
+		FileMetadata precompressed = null;
+		if (header.get("range") == null && compressible) {
+			String acceptEncoding = header.get("accept-encoding");
+			precompressed = server.getPrecompressor().precompressed(resource);
+			if (precompressed != null
+					&& Protocol.GZIP.equals(AcceptEncoding.negotiate(
+							acceptEncoding, ContentCompressor.ENCODINGS)))
+				encoding = Protocol.GZIP;
+			else {
+				precompressed = null;
+				encoding = compressor.negotiate(acceptEncoding, resource);
+			}
+		}
+		String etag;
+		if (precompressed != null)
+			etag = precompressed.getETag();
+		else if (encoding != null)
+			etag = ContentCompressor.variantETag(resource.getETag(), encoding);
+		else
+			etag = resource.getETag();
 
-			// System.out.println(finalHash + "\n" +
-			// parseString(authorizationString, "response"));
+		HttpResponse response = null;
+		if (isNotModified(header, resource, etag)) {
+			// create a 304NotMOdified
+			response = HttpResponseFactory.create304NotModified(etag,
+					Protocol.CLOSE);
+		} else if (precompressed != null) {
+			// Sent straight from disk like any other file
+			response = HttpResponseFactory.create200OK(resource.getFile(),
+					server.getPrecompressor().toFile(resource.getFilePath()),
+					resource.lastModified(), precompressed.length(), encoding,
+					etag, Protocol.CLOSE);
+		} else if (encoding != null && !compressor.isCacheable(resource,
+				settings.getMaxCompressedLength())) {
+			// Too large to hold in memory, compress while sending
+			response = HttpResponseFactory.create200OK(resource.getFile(),
+					resource.lastModified(),
+					compressor.stream(resource, encoding), encoding, etag,
+					Protocol.CLOSE);
+		} else if (encoding != null) {
+			try {
+				response = HttpResponseFactory.create200OK(
+						resource.getFile(), resource.lastModified(),
+						compressor.compress(resource, encoding), encoding,
+						etag, Protocol.CLOSE);
+			} catch (IOException e) {
+				// Gone since it was resolved, send it as is to find out
+				e.printStackTrace();
+			}
+		}
 
-			if (finalHash.equals(parseString(authorizationString, "response"))) {
-				// authorize user
-				this.authenticatedUser = username;
-				System.out.println("User successfully authenticated");
+		if (response == null) {
+			List<ByteRange> ranges = requestedRanges(header, resource);
+			if (ranges == null) {
+				// Lets create 200 OK response, a directory resolves to its
+				// default index.html file
+				response = HttpResponseFactory.create200OK(resource.getFile(),
+						resource.lastModified(), resource.length(),
+						resource.getETag(), Protocol.CLOSE);
+			} else if (ranges.isEmpty()) {
+				response = HttpResponseFactory.create416RangeNotSatisfiable(
+						resource.length(), Protocol.CLOSE);
+			} else {
+				response = HttpResponseFactory.create206PartialContent(
+						resource.getFile(), resource.lastModified(),
+						resource.length(), resource.getETag(), ranges,
+						Protocol.CLOSE);
 			}
+		}
 
-		} catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		// Caches must not hand one client's coding to another
+		if (compressible)
+			response.put(Protocol.VARY, Protocol.ACCEPT_ENCODING);
+		if (response.getStatus() != Protocol.RANGE_NOT_SATISFIABLE_CODE)
+			server.getCachePolicy().apply(resource.getPath(), response);
+		return response;
+	}
+
+	/**
+	 * Evaluates the conditional request header fields. If-None-Match takes
+	 * precedence, If-Modified-Since is only looked at without it.
+	 */
+	private boolean isNotModified(Map<String, String> header,
+			Resource resource, String etag) {
+		String ifNoneMatch = header.get("if-none-match");
+		if (ifNoneMatch != null)
+			return EntityTag.matchesAny(ifNoneMatch, etag);
+		// An invalid date is ignored, as if the field was not there
+		long since = HttpDate.parse(header.get("if-modified-since"));
+		return HttpDate.notModifiedSince(resource.lastModified(), since);
+	}
+
+	/**
+	 * Evaluates the Range header field together with If-Range.
+	 * 
+	 * @return null if the whole file is to be sent, otherwise the ranges to
+	 *         send, which may be none at all
+	 */
+	private List<ByteRange> requestedRanges(Map<String, String> header,
+			Resource resource) {
+		String range = header.get("range");
+		if (range == null)
+			return null;
+
+		// If-Range: only send the ranges if the file is still the one the
+		// client has the rest of
+		String ifRange = header.get("if-range");
+		if (ifRange != null) {
+			ifRange = ifRange.trim();
+			if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+				if (!EntityTag.strongEquals(ifRange, resource.getETag()))
+					return null;
+			} else {
+				long date = HttpDate.parse(ifRange);
+				if (date < 0
+						|| date / 1000 != resource.lastModified() / 1000)
+					return null;
+			}
 		}
 
+		return ByteRange.parse(range, resource.length());
 	}
 
-	private String parseString(String line, String key) {
-		key = key + "=";
-		int startIndex = line.indexOf(key) + key.length();
-		String result = line.substring(startIndex);
-		result = result.substring(
-				0,
-				(result.indexOf(",") == -1 ? result.length() - 1 : result
-						.indexOf(",")));
-		result = result.replace("\"", "");
-		// System.out.println("Looking for '" + key + "', found '" + result +
-		// "'");
-		return result;
+	private void authenticateUser(SecuritySnapshot security,
+			String authorizationString, String method, String uri) {
+		RequestEvents.Auth event = new RequestEvents.Auth();
+		event.begin();
+		DigestAuthenticator.Verdict verdict = server.getAuthenticator()
+				.verify(security, authorizationString, method, uri);
+		this.authenticatedUser = verdict.getUser();
+		this.staleNonce = verdict.isStale();
+		event.end();
+		if (event.shouldCommit()) {
+			event.uri = uri;
+			event.user = verdict.getUser();
+			event.stale = verdict.isStale();
+			event.commit();
+		}
+	}
+
+	/**
+	 * Asks the client for credentials, with a nonce of its own.
+	 */
+	private HttpResponse createUnauthorizedResponse() {
+		return HttpResponseFactory.create401Unauthorized(server
+				.getAuthenticator().challenge(staleNonce), Protocol.CLOSE);
 	}
 }
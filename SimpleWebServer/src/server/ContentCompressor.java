@@ -0,0 +1,381 @@
+/*
+ * ContentCompressor.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.file.Files;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import protocol.AcceptEncoding;
+import protocol.MimeTypes;
+import protocol.Protocol;
+import protocol.StreamingBody;
+
+/**
+ * Produces gzip and deflate encoded variants of textual files. Each variant
+ * is compressed once and kept in a byte-bounded LRU cache keyed by file,
+ * entity tag and coding, so later requests for the same version of a file
+ * cost no compression at all. Entries for a path are dropped as soon as the
+ * metadata tree reports it changed.
+ *
+ * The compression level follows the load of the machine: it is lowered when
+ * the CPUs are saturated, trading ratio for throughput, and raised again
+ * when they are not.
+ */
+public class ContentCompressor {
+	/**
+	 * The codings we produce, most preferred first.
+	 */
+	public static final String[] ENCODINGS = { Protocol.GZIP, Protocol.DEFLATE };
+
+	/**
+	 * Files smaller than this gain too little to be worth the header.
+	 */
+	public static final int MIN_LENGTH = 256;
+
+	private static final long LEVEL_CHECK_INTERVAL = 1000; // milliseconds
+
+	private final FileMetadataTree tree;
+	private volatile long budget;
+	private final Map<String, byte[]> cache;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private long size;
+
+	private final OperatingSystemMXBean os;
+	private volatile int level;
+	private volatile long levelCheckedAt;
+
+	/**
+	 * @param tree
+	 *            The metadata of the document root, for invalidation.
+	 * @param budget
+	 *            The maximum number of compressed bytes to keep.
+	 */
+	public ContentCompressor(FileMetadataTree tree, long budget) {
+		this.tree = tree;
+		this.budget = budget;
+		this.cache = new LinkedHashMap<String, byte[]>(64, 0.75f, true);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.os = ManagementFactory.getOperatingSystemMXBean();
+		this.level = Deflater.DEFAULT_COMPRESSION;
+
+		tree.addListener(new FileMetadataTree.Listener() {
+			@Override
+			public void contentChanged(String path) {
+				invalidate(path);
+			}
+		});
+	}
+
+	/**
+	 * Changes the number of compressed bytes to keep, dropping the least
+	 * recently used variants if there are too many now.
+	 *
+	 * @param budget
+	 *            The maximum number of bytes.
+	 */
+	public void setBudget(long budget) {
+		synchronized (cache) {
+			this.budget = budget;
+			trim();
+		}
+	}
+
+	/**
+	 * Whether the resource is worth compressing at all. Responses for such
+	 * resources vary on <tt>Accept-Encoding</tt>, whichever coding is picked.
+	 *
+	 * @param resource
+	 *            An existing resource.
+	 * @return true for textual files that are not tiny
+	 */
+	public boolean isCompressible(Resource resource) {
+		return isCompressible(resource.getFile().getName(), resource.length());
+	}
+
+	/**
+	 * Whether the encoded variants of a compressible resource are small
+	 * enough to be compressed into memory and cached. Larger ones are
+	 * {@link #stream(Resource, String) streamed} instead.
+	 *
+	 * @param resource
+	 *            An existing, compressible resource.
+	 * @param maxLength
+	 *            Files larger than this are compressed while sending rather
+	 *            than cached.
+	 * @return true if {@link #compress(Resource, String)} may be used
+	 */
+	public boolean isCacheable(Resource resource, long maxLength) {
+		return resource.length() <= maxLength;
+	}
+
+	/**
+	 * Whether a file of this name and size is worth compressing.
+	 *
+	 * @param fileName
+	 *            The name of the file.
+	 * @param length
+	 *            The size of the file in bytes.
+	 * @return true for textual files that are not tiny
+	 */
+	public static boolean isCompressible(String fileName, long length) {
+		if (length < MIN_LENGTH)
+			return false;
+		MimeTypes.MimeType mime = MimeTypes.getDefault().forFileName(fileName);
+		return mime != null && mime.isCompressible();
+	}
+
+	/**
+	 * Picks the coding for a resource.
+	 *
+	 * @param acceptEncoding
+	 *            The <tt>Accept-Encoding</tt> field value, may be null.
+	 * @param resource
+	 *            An existing resource.
+	 * @return One of {@link #ENCODINGS}, or null to send the file as is.
+	 */
+	public String negotiate(String acceptEncoding, Resource resource) {
+		if (acceptEncoding == null || !isCompressible(resource))
+			return null;
+		return AcceptEncoding.negotiate(acceptEncoding, ENCODINGS);
+	}
+
+	/**
+	 * Derives the entity tag of an encoded variant, which must differ from
+	 * that of the file itself.
+	 *
+	 * @param etag
+	 *            The quoted entity tag of the file.
+	 * @param encoding
+	 *            The coding of the variant.
+	 * @return the quoted entity tag of the variant
+	 */
+	public static String variantETag(String etag, String encoding) {
+		return etag.substring(0, etag.length() - 1) + "-" + encoding + "\"";
+	}
+
+	/**
+	 * Gets the encoded variant of a resource, compressing it on first use.
+	 *
+	 * @param resource
+	 *            An existing, compressible resource.
+	 * @param encoding
+	 *            One of {@link #ENCODINGS}.
+	 * @return the encoded content
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 */
+	public byte[] compress(Resource resource, String encoding)
+			throws IOException {
+		String key = resource.getFile().getPath() + '\0'
+				+ resource.getETag() + '\0' + encoding;
+		byte[] compressed;
+		synchronized (cache) {
+			compressed = cache.get(key);
+		}
+		if (compressed != null) {
+			hits.increment();
+			return compressed;
+		}
+		misses.increment();
+
+		compressed = compress(Files.readAllBytes(resource.getFile().toPath()),
+				encoding, level());
+
+		synchronized (cache) {
+			// Two threads may have compressed the same file at once
+			byte[] previous = cache.put(key, compressed);
+			size += compressed.length
+					- (previous == null ? 0 : previous.length);
+			trim();
+		}
+		return compressed;
+	}
+
+	/**
+	 * Drops the least recently used variants until the rest fit the budget.
+	 * The caller holds the cache lock.
+	 */
+	private void trim() {
+		Iterator<byte[]> it = cache.values().iterator();
+		while (size > budget && it.hasNext()) {
+			size -= it.next().length;
+			it.remove();
+		}
+	}
+
+	/**
+	 * Gets the number of encoded variants taken from the cache.
+	 *
+	 * @return the hit count since the start
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of encoded variants that had to be compressed.
+	 *
+	 * @return the miss count since the start
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Gets the encoded variant of a resource as a body that is compressed
+	 * while it is sent, so only a buffer of it is ever in memory. Nothing is
+	 * cached.
+	 *
+	 * @param resource
+	 *            An existing, compressible resource.
+	 * @param encoding
+	 *            One of {@link #ENCODINGS}.
+	 * @return the encoded content
+	 */
+	public StreamingBody stream(final Resource resource, final String encoding) {
+		final int level = level();
+		return new StreamingBody() {
+			@Override
+			public void writeTo(OutputStream out, Map<String, String> trailers)
+					throws IOException {
+				DeflaterOutputStream compressed = open(out, encoding, level);
+				try {
+					Files.copy(resource.getFile().toPath(), compressed);
+				} finally {
+					// Frees the deflater even if the client went away
+					compressed.close();
+				}
+			}
+		};
+	}
+
+	/**
+	 * Compresses a complete body.
+	 *
+	 * @param content
+	 *            The data to compress.
+	 * @param encoding
+	 *            One of {@link #ENCODINGS}.
+	 * @param level
+	 *            The {@link Deflater} compression level.
+	 * @return the encoded content
+	 * @throws IOException
+	 *             Not expected when writing to memory.
+	 */
+	public static byte[] compress(byte[] content, String encoding,
+			final int level) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(
+				content.length / 3 + 64);
+		DeflaterOutputStream out = open(bytes, encoding, level);
+		out.write(content);
+		out.close();
+		return bytes.toByteArray();
+	}
+
+	private static DeflaterOutputStream open(OutputStream out,
+			String encoding, final int level) throws IOException {
+		if (encoding.equals(Protocol.GZIP)) {
+			return new GZIPOutputStream(out, Protocol.CHUNK_LENGTH) {
+				{
+					def.setLevel(level);
+				}
+			};
+		}
+		// The "deflate" coding is the zlib format, not raw deflate
+		return new DeflaterOutputStream(out, new Deflater(level),
+				Protocol.CHUNK_LENGTH) {
+			@Override
+			public void close() throws IOException {
+				try {
+					super.close();
+				} finally {
+					def.end();
+				}
+			}
+		};
+	}
+
+	/**
+	 * The compression level for the current load, looked at no more than
+	 * once a second.
+	 *
+	 * @return a {@link Deflater} compression level
+	 */
+	public int level() {
+		long now = System.currentTimeMillis();
+		if (now - levelCheckedAt < LEVEL_CHECK_INTERVAL)
+			return level;
+		levelCheckedAt = now;
+
+		double load = os.getSystemLoadAverage() / os.getAvailableProcessors();
+		if (load < 0) {
+			// Not available on this platform
+			level = Deflater.DEFAULT_COMPRESSION;
+		} else if (load < 0.5) {
+			level = Deflater.BEST_COMPRESSION;
+		} else if (load < 0.8) {
+			level = Deflater.DEFAULT_COMPRESSION;
+		} else if (load < 1.0) {
+			level = 3;
+		} else {
+			level = Deflater.BEST_SPEED;
+		}
+		return level;
+	}
+
+	private void invalidate(String path) {
+		synchronized (cache) {
+			if (path == null) {
+				cache.clear();
+				size = 0;
+				return;
+			}
+			String file = tree.toFile(path).getPath();
+			String prefix = file + '\0';
+			String children = file + File.separatorChar;
+			Iterator<Map.Entry<String, byte[]>> it = cache.entrySet()
+					.iterator();
+			while (it.hasNext()) {
+				Map.Entry<String, byte[]> entry = it.next();
+				if (entry.getKey().startsWith(prefix)
+						|| entry.getKey().startsWith(children)) {
+					size -= entry.getValue().length;
+					it.remove();
+				}
+			}
+		}
+	}
+}
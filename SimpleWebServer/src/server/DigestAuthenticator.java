@@ -0,0 +1,419 @@
+/*
+ * DigestAuthenticator.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * HTTP Digest authentication (RFC 7616, MD5 with <tt>qop=auth</tt>).
+ *
+ * The HA1 hash of every user is computed once when the users are loaded,
+ * see {@link SecuritySnapshot}, which is passed in with every check.
+ * Nonces carry their issue time and an HMAC over it, so a nonce cannot be
+ * forged and is only good for {@link #NONCE_LIFETIME}. Every nonce handed
+ * out is remembered in a bounded table together with the nonce counts used
+ * and the user it was first verified for, which rejects replays and lets
+ * later requests on the same nonce skip the HMAC check. Clients may send
+ * their requests out of order, so any of the last {@link #COUNT_WINDOW}
+ * counts is taken if it was not used yet; an older one is reported stale.
+ * The HA2 hash of each method and URI is cached as well, so a repeated
+ * request costs a single MD5.
+ */
+public class DigestAuthenticator {
+	public static final String REALM = "SimpleWebServer";
+
+	/**
+	 * How long a nonce may be used before the client is asked for a new one.
+	 */
+	public static final long NONCE_LIFETIME = 5 * 60 * 1000; // milliseconds
+
+	/**
+	 * How far below the highest nonce count a count may be and still be
+	 * used.
+	 */
+	public static final int COUNT_WINDOW = 64;
+
+	private static final int MAX_NONCES = 16384;
+	private static final int MAX_HA2 = 1024;
+	private static final int MAC_LENGTH = 16;
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	/**
+	 * The outcome of checking an <tt>Authorization</tt> header field.
+	 */
+	public static class Verdict {
+		static final Verdict DENIED = new Verdict(null, false);
+		static final Verdict STALE = new Verdict(null, true);
+
+		private final String user;
+		private final boolean stale;
+
+		private Verdict(String user, boolean stale) {
+			this.user = user;
+			this.stale = stale;
+		}
+
+		/**
+		 * @return the authenticated user, or null if not authenticated
+		 */
+		public String getUser() {
+			return user;
+		}
+
+		/**
+		 * @return true if the credentials were right but the nonce is no
+		 *         longer good, so the client should just retry with a new one
+		 */
+		public boolean isStale() {
+			return stale;
+		}
+	}
+
+	/**
+	 * What we know about a nonce we handed out.
+	 */
+	private static class NonceState {
+		final long issued;
+		String user;
+		long count;
+		// Bit i is set if count - i has been used
+		long used;
+
+		NonceState(long issued) {
+			this.issued = issued;
+		}
+
+		/**
+		 * Takes a count that is less than {@link #COUNT_WINDOW} below the
+		 * highest one, or above it.
+		 *
+		 * @return false if the count was used before
+		 */
+		boolean use(long count) {
+			if (count > this.count) {
+				long shift = count - this.count;
+				used = (shift >= COUNT_WINDOW ? 0 : used << shift) | 1;
+				this.count = count;
+				return true;
+			}
+			long bit = 1L << (this.count - count);
+			if ((used & bit) != 0)
+				return false;
+			used |= bit;
+			return true;
+		}
+	}
+
+	private final byte[] secret;
+	private final SecureRandom random;
+	private final Map<String, NonceState> nonces;
+	private final Map<String, String> ha2;
+
+	private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+		@Override
+		protected MessageDigest initialValue() {
+			try {
+				return MessageDigest.getInstance("MD5");
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	private final ThreadLocal<Mac> hmac = new ThreadLocal<Mac>() {
+		@Override
+		protected Mac initialValue() {
+			try {
+				Mac mac = Mac.getInstance("HmacSHA256");
+				mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+				return mac;
+			} catch (GeneralSecurityException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	};
+
+	public DigestAuthenticator() {
+		this.random = new SecureRandom();
+		this.secret = new byte[32];
+		random.nextBytes(secret);
+
+		// Oldest first, and those expire first anyway
+		this.nonces = new LinkedHashMap<String, NonceState>(256, 0.75f, false) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(
+					Map.Entry<String, NonceState> eldest) {
+				return size() > MAX_NONCES;
+			}
+		};
+		this.ha2 = new LinkedHashMap<String, String>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > MAX_HA2;
+			}
+		};
+	}
+
+	/**
+	 * Computes the HA1 hash of a user, which stands in for the password.
+	 *
+	 * @param user
+	 *            The user name.
+	 * @param password
+	 *            The password.
+	 * @return the HA1 in lower case hex
+	 */
+	public static String ha1(String user, String password) {
+		return md5Hex(user + ":" + REALM + ":" + password);
+	}
+
+	/**
+	 * Builds the <tt>WWW-Authenticate</tt> field value for a 401 response,
+	 * with a fresh nonce.
+	 *
+	 * @param stale
+	 *            Whether the client's nonce was merely out of date.
+	 * @return the challenge
+	 */
+	public String challenge(boolean stale) {
+		return "Digest realm=\"" + REALM + "\", qop=\"auth\", "
+				+ "nonce=\"" + newNonce() + "\"" + (stale ? ", stale=true" : "");
+	}
+
+	/**
+	 * Checks the credentials of a request.
+	 *
+	 * @param security
+	 *            The users to check against.
+	 * @param authorization
+	 *            The <tt>Authorization</tt> field value.
+	 * @param method
+	 *            The request method.
+	 * @param uri
+	 *            The request target as sent in the request line.
+	 * @return the verdict
+	 */
+	public Verdict verify(SecuritySnapshot security, String authorization,
+			String method, String uri) {
+		Map<String, String> params = parse(authorization);
+		if (params == null)
+			return Verdict.DENIED;
+
+		String user = params.get("username");
+		String nonce = params.get("nonce");
+		String response = params.get("response");
+		String cnonce = params.get("cnonce");
+		String nc = params.get("nc");
+		if (user == null || nonce == null || response == null
+				|| cnonce == null || nc == null
+				|| !REALM.equals(params.get("realm"))
+				|| !"auth".equals(params.get("qop"))
+				|| !uri.equals(params.get("uri")))
+			return Verdict.DENIED;
+		String userHa1 = security.getHa1(user);
+		if (userHa1 == null)
+			return Verdict.DENIED;
+
+		long count;
+		try {
+			count = Long.parseLong(nc, 16);
+		} catch (NumberFormatException e) {
+			return Verdict.DENIED;
+		}
+		if (count < 1)
+			return Verdict.DENIED;
+
+		// Only a client that knows the password may be told its nonce is
+		// stale, anyone else has to be asked for credentials again
+		String expected = md5Hex(userHa1 + ":" + nonce + ":" + nc + ":"
+				+ cnonce + ":auth:" + ha2(method, uri));
+		if (!MessageDigest.isEqual(expected.getBytes(StandardCharsets.US_ASCII),
+				response.toLowerCase().getBytes(StandardCharsets.US_ASCII)))
+			return Verdict.DENIED;
+
+		NonceState state;
+		synchronized (nonces) {
+			state = nonces.get(nonce);
+		}
+		if (state == null) {
+			// Either not ours, or forgotten since: have them get a new one
+			return isSigned(nonce) ? Verdict.STALE : Verdict.DENIED;
+		}
+		if (System.currentTimeMillis() - state.issued > NONCE_LIFETIME) {
+			synchronized (nonces) {
+				nonces.remove(nonce);
+			}
+			return Verdict.STALE;
+		}
+
+		synchronized (state) {
+			// A nonce belongs to whoever used it first, and each count is
+			// good once
+			if (state.user != null && !state.user.equals(user))
+				return Verdict.DENIED;
+			if (state.count - count >= COUNT_WINDOW)
+				return Verdict.STALE;
+			if (!state.use(count))
+				return Verdict.DENIED;
+			state.user = user;
+		}
+		return new Verdict(user, false);
+	}
+
+	private String newNonce() {
+		long now = System.currentTimeMillis();
+		ByteBuffer payload = ByteBuffer.allocate(16 + MAC_LENGTH);
+		payload.putLong(now);
+		byte[] salt = new byte[8];
+		random.nextBytes(salt);
+		payload.put(salt);
+		payload.put(sign(payload.array(), 16));
+
+		String nonce = Base64.getUrlEncoder().withoutPadding()
+				.encodeToString(payload.array());
+		synchronized (nonces) {
+			nonces.put(nonce, new NonceState(now));
+		}
+		return nonce;
+	}
+
+	/**
+	 * Checks the signature of a nonce we no longer remember.
+	 *
+	 * @return true if the nonce was issued by us
+	 */
+	private boolean isSigned(String nonce) {
+		byte[] bytes;
+		try {
+			bytes = Base64.getUrlDecoder().decode(nonce);
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+		if (bytes.length != 16 + MAC_LENGTH)
+			return false;
+
+		byte[] mac = new byte[MAC_LENGTH];
+		System.arraycopy(bytes, 16, mac, 0, MAC_LENGTH);
+		return MessageDigest.isEqual(mac, sign(bytes, 16));
+	}
+
+	private byte[] sign(byte[] data, int length) {
+		Mac mac = hmac.get();
+		mac.update(data, 0, length);
+		byte[] full = mac.doFinal();
+		byte[] truncated = new byte[MAC_LENGTH];
+		System.arraycopy(full, 0, truncated, 0, MAC_LENGTH);
+		return truncated;
+	}
+
+	private String ha2(String method, String uri) {
+		String key = method + ":" + uri;
+		String hash;
+		synchronized (ha2) {
+			hash = ha2.get(key);
+		}
+		if (hash == null) {
+			hash = md5Hex(key);
+			synchronized (ha2) {
+				ha2.put(key, hash);
+			}
+		}
+		return hash;
+	}
+
+	/**
+	 * MD5 as lower case hex, leading zeros included.
+	 */
+	private static String md5Hex(String s) {
+		byte[] digest = MD5.get().digest(s.getBytes(StandardCharsets.UTF_8));
+		char[] hex = new char[digest.length * 2];
+		for (int i = 0; i < digest.length; i++) {
+			hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+			hex[2 * i + 1] = HEX[digest[i] & 0xf];
+		}
+		return new String(hex);
+	}
+
+	/**
+	 * Splits <tt>Digest a=b, c="d, e"</tt> into its parameters.
+	 *
+	 * @return the parameters, or null if it is not a Digest field value
+	 */
+	static Map<String, String> parse(String authorization) {
+		authorization = authorization.trim();
+		if (!authorization.regionMatches(true, 0, "Digest ", 0, 7))
+			return null;
+
+		Map<String, String> params = new HashMap<String, String>();
+		int i = 7;
+		int length = authorization.length();
+		while (i < length) {
+			while (i < length
+					&& (authorization.charAt(i) == ' ' || authorization
+							.charAt(i) == ','))
+				i++;
+			int equals = authorization.indexOf('=', i);
+			if (equals < 0)
+				break;
+			String key = authorization.substring(i, equals).trim()
+					.toLowerCase();
+			i = equals + 1;
+
+			String value;
+			if (i < length && authorization.charAt(i) == '"') {
+				StringBuilder sb = new StringBuilder();
+				i++;
+				while (i < length && authorization.charAt(i) != '"') {
+					char c = authorization.charAt(i++);
+					if (c == '\\' && i < length)
+						c = authorization.charAt(i++);
+					sb.append(c);
+				}
+				i++; // closing quote
+				value = sb.toString();
+			} else {
+				int comma = authorization.indexOf(',', i);
+				if (comma < 0)
+					comma = length;
+				value = authorization.substring(i, comma).trim();
+				i = comma;
+			}
+			params.put(key, value);
+		}
+		return params;
+	}
+}
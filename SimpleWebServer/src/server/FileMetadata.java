@@ -0,0 +1,111 @@
+/*
+ * FileMetadata.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.nio.file.attribute.BasicFileAttributes;
+
+import protocol.EntityTag;
+
+/**
+ * The attributes of a file or directory below the document root as they are
+ * kept by the {@link FileMetadataTree}. Instances are immutable.
+ */
+public class FileMetadata {
+	private final boolean directory;
+	private final long lastModified;
+	private final long length;
+	private final String etag;
+
+	public FileMetadata(boolean directory, long lastModified, long length,
+			String etag) {
+		this.directory = directory;
+		this.lastModified = lastModified;
+		this.length = length;
+		this.etag = etag;
+	}
+
+	/**
+	 * Creates the metadata from attributes read off the disk.
+	 *
+	 * @param attrs
+	 *            The attributes of the file.
+	 * @return the metadata
+	 */
+	public static FileMetadata of(BasicFileAttributes attrs) {
+		long lastModified = attrs.lastModifiedTime().toMillis();
+		// The file key is the device and inode where the platform has them,
+		// so replacing a file with one of the same size and time still
+		// changes the tag
+		Object key = attrs.fileKey();
+		int identity = key == null ? 0 : key.hashCode();
+		return new FileMetadata(attrs.isDirectory(), lastModified,
+				attrs.size(), EntityTag.create(identity, lastModified,
+						attrs.size()));
+	}
+
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Modification time in milliseconds since the epoch.
+	 *
+	 * @return the modification time
+	 */
+	public long lastModified() {
+		return lastModified;
+	}
+
+	/**
+	 * Size in bytes.
+	 *
+	 * @return the size
+	 */
+	public long length() {
+		return length;
+	}
+
+	/**
+	 * The strong entity tag of this version of the file.
+	 *
+	 * @return the quoted entity tag
+	 */
+	public String getETag() {
+		return etag;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof FileMetadata))
+			return false;
+		FileMetadata other = (FileMetadata) obj;
+		return directory == other.directory
+				&& lastModified == other.lastModified
+				&& length == other.length && etag.equals(other.etag);
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) (lastModified ^ (lastModified >>> 32)) * 31
+				+ (int) length + (directory ? 1 : 0);
+	}
+}
@@ -0,0 +1,418 @@
+/*
+ * FileMetadataTree.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An in-memory copy of the attributes of everything below the document root,
+ * keyed by request path (e.g. <tt>/dir/page.html</tt>). The tree is built by
+ * walking the root once on {@link #start()} and is then kept current by a
+ * {@link WatchService} registered on every directory. Since watch events can
+ * be lost (or never arrive at all on some network file systems) the whole
+ * root is also rescanned periodically as a safety net.
+ *
+ * Lookups never touch the disk; all file system access happens on the
+ * watcher and rescan threads.
+ *
+ * Symbolic links are left out of the tree, so they are never served and a
+ * link cannot lead a client to files outside the root. So are the files the
+ * server writes itself, such as its logs, should they be below the root.
+ */
+public class FileMetadataTree {
+	/**
+	 * Notified whenever the content below the root changes.
+	 */
+	public interface Listener {
+		/**
+		 * @param path
+		 *            The request path that changed, or null if an unknown
+		 *            number of paths changed.
+		 */
+		public void contentChanged(String path);
+	}
+
+	/**
+	 * A rescan that finds more changes than this reports them as one unknown
+	 * change, rather than path by path.
+	 */
+	private static final int MAX_REPORTED_CHANGES = 256;
+
+	private final Path root;
+	private final long rescanInterval;
+	private final Map<String, FileMetadata> entries;
+	private final Map<WatchKey, Path> keys;
+	private final List<Listener> listeners;
+	private final List<String> excluded;
+
+	private WatchService watcher;
+	private ScheduledExecutorService rescanner;
+	private volatile boolean stopped;
+
+	/**
+	 * @param rootDirectory
+	 *            The document root.
+	 * @param rescanInterval
+	 *            Seconds between two full rescans of the root.
+	 */
+	public FileMetadataTree(String rootDirectory, long rescanInterval) {
+		this.root = realPath(Paths.get(rootDirectory).toAbsolutePath()
+				.normalize());
+		this.rescanInterval = rescanInterval;
+		this.entries = new ConcurrentHashMap<String, FileMetadata>();
+		this.keys = new HashMap<WatchKey, Path>();
+		this.listeners = new CopyOnWriteArrayList<Listener>();
+		this.excluded = new CopyOnWriteArrayList<String>();
+	}
+
+	/**
+	 * Gets the normalized, absolute document root.
+	 *
+	 * @return the root
+	 */
+	public Path getRoot() {
+		return root;
+	}
+
+	/**
+	 * Gets the metadata for a normalized request path.
+	 *
+	 * @param path
+	 *            The request path, starting with a slash.
+	 * @return The metadata, or null if nothing exists at that path.
+	 */
+	public FileMetadata get(String path) {
+		return entries.get(path);
+	}
+
+	/**
+	 * Gets the paths of everything currently in the tree.
+	 *
+	 * @return a snapshot of the paths
+	 */
+	public List<String> paths() {
+		return new ArrayList<String>(entries.keySet());
+	}
+
+	/**
+	 * Maps a normalized request path to its file below the root. This does
+	 * not access the disk.
+	 *
+	 * @param path
+	 *            The request path, starting with a slash.
+	 * @return the file
+	 */
+	public File toFile(String path) {
+		return root.resolve(path.substring(1)).toFile();
+	}
+
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Keeps a file the server reads or writes out of the tree, together with
+	 * the files named after it, such as <tt>access.log.1</tt> for
+	 * <tt>access.log</tt>. Changes to them are not reported either. To be
+	 * called before {@link #start()}.
+	 *
+	 * @param file
+	 *            The file, which need not be below the root or exist.
+	 */
+	public void exclude(File file) {
+		Path path = file.toPath().toAbsolutePath().normalize();
+		Path parent = path.getParent();
+		if (parent == null)
+			return;
+		path = realPath(parent).resolve(path.getFileName());
+		if (path.startsWith(root) && !path.equals(root))
+			excluded.add(toPath(path));
+	}
+
+	/**
+	 * @param path
+	 *            A request path, starting with a slash.
+	 * @return true if the path is one of the server's own files
+	 */
+	public boolean isExcluded(String path) {
+		for (String name : excluded) {
+			if (path.startsWith(name)
+					&& (path.length() == name.length() || path.charAt(name
+							.length()) == '.'))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Scans the root and starts watching it for changes.
+	 */
+	public synchronized void start() {
+		ThreadFactory daemons = new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "metadata-tree-" + root.getFileName());
+				t.setDaemon(true);
+				return t;
+			}
+		};
+
+		try {
+			watcher = root.getFileSystem().newWatchService();
+		} catch (IOException e) {
+			// Still usable, the periodic rescan keeps us reasonably fresh
+			e.printStackTrace();
+		}
+		rescan();
+
+		if (watcher != null) {
+			daemons.newThread(new Runnable() {
+				@Override
+				public void run() {
+					processEvents();
+				}
+			}).start();
+		}
+
+		rescanner = Executors.newSingleThreadScheduledExecutor(daemons);
+		rescanner.scheduleWithFixedDelay(new Runnable() {
+			@Override
+			public void run() {
+				rescan();
+			}
+		}, rescanInterval, rescanInterval, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Stops watching the root.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (rescanner != null)
+			rescanner.shutdownNow();
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	/**
+	 * Re-reads the attributes of a single path right away, e.g. after the
+	 * server itself wrote to it, rather than waiting for the watch event.
+	 *
+	 * @param path
+	 *            The request path, starting with a slash.
+	 */
+	public void refresh(String path) {
+		refresh(root.resolve(path.substring(1)));
+	}
+
+	/**
+	 * Walks the whole root and brings the tree in line with what is on disk.
+	 */
+	public synchronized void rescan() {
+		Map<String, FileMetadata> found = new HashMap<String, FileMetadata>();
+		scan(root, found);
+
+		List<String> changed = new ArrayList<String>();
+		for (Map.Entry<String, FileMetadata> entry : found.entrySet()) {
+			FileMetadata old = entries.put(entry.getKey(), entry.getValue());
+			if (!entry.getValue().equals(old))
+				changed.add(entry.getKey());
+		}
+		Iterator<String> it = entries.keySet().iterator();
+		while (it.hasNext()) {
+			String path = it.next();
+			if (!found.containsKey(path)) {
+				it.remove();
+				changed.add(path);
+			}
+		}
+
+		if (changed.size() > MAX_REPORTED_CHANGES) {
+			notifyListeners(null);
+		} else {
+			for (String path : changed)
+				notifyListeners(path);
+		}
+	}
+
+	private void processEvents() {
+		while (!stopped) {
+			WatchKey key;
+			try {
+				key = watcher.take();
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			Path dir;
+			synchronized (this) {
+				dir = keys.get(key);
+			}
+			for (WatchEvent<?> event : key.pollEvents()) {
+				if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+					rescan();
+				} else if (dir != null) {
+					refresh(dir.resolve((Path) event.context()));
+				}
+			}
+
+			if (!key.reset()) {
+				synchronized (this) {
+					keys.remove(key);
+				}
+			}
+		}
+	}
+
+	private synchronized void refresh(Path file) {
+		String path = toPath(file);
+		if (isExcluded(path))
+			return;
+		BasicFileAttributes attrs;
+		try {
+			attrs = Files.readAttributes(file, BasicFileAttributes.class,
+					LinkOption.NOFOLLOW_LINKS);
+			if (attrs.isSymbolicLink())
+				throw new NoSuchFileException(file.toString());
+		} catch (IOException e) {
+			// Gone, and so is everything below it
+			entries.remove(path);
+			String prefix = path + "/";
+			Iterator<String> it = entries.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().startsWith(prefix))
+					it.remove();
+			}
+			notifyListeners(path);
+			return;
+		}
+
+		if (attrs.isDirectory())
+			scan(file, entries);
+		else
+			entries.put(path, FileMetadata.of(attrs));
+		notifyListeners(path);
+	}
+
+	/**
+	 * Records everything below the supplied directory and watches every
+	 * directory found.
+	 */
+	private void scan(Path dir, final Map<String, FileMetadata> into) {
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path d,
+						BasicFileAttributes attrs) {
+					into.put(toPath(d), FileMetadata.of(attrs));
+					watch(d);
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path f, BasicFileAttributes attrs) {
+					// Links are not followed, they could point anywhere
+					String path = toPath(f);
+					if (!attrs.isSymbolicLink() && !isExcluded(path))
+						into.put(path, FileMetadata.of(attrs));
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path f, IOException e) {
+					// Unreadable entries are simply not served
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void watch(Path dir) {
+		if (watcher == null || stopped)
+			return;
+		try {
+			WatchKey key = dir.register(watcher,
+					StandardWatchEventKinds.ENTRY_CREATE,
+					StandardWatchEventKinds.ENTRY_DELETE,
+					StandardWatchEventKinds.ENTRY_MODIFY);
+			keys.put(key, dir);
+		} catch (IOException | ClosedWatchServiceException e) {
+			// Covered by the periodic rescan
+		}
+	}
+
+	/**
+	 * Resolves links in the root itself, so that the walk starts in the real
+	 * directory rather than at a link it would not follow.
+	 */
+	private static Path realPath(Path root) {
+		try {
+			return root.toRealPath();
+		} catch (IOException e) {
+			// Not there yet, the rescans will pick it up
+			return root;
+		}
+	}
+
+	private String toPath(Path file) {
+		Path relative = root.relativize(file);
+		if (relative.toString().isEmpty())
+			return "/";
+		return "/" + relative.toString().replace(File.separatorChar, '/');
+	}
+
+	private void notifyListeners(String path) {
+		for (Listener listener : listeners)
+			listener.contentChanged(path);
+	}
+}
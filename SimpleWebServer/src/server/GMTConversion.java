@@ -1,34 +1,22 @@
 package server;
 
-import java.text.DateFormat;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
 import java.util.Date;
-import java.util.GregorianCalendar;
-import java.util.TimeZone;
+
+import protocol.HttpDate;
 
 public class GMTConversion {
-	public static final String GMT_FORMAT = "EEE, d MMM yyyy HH:mm:ss z";
+	public static final String GMT_FORMAT = "EEE, dd MMM yyyy HH:mm:ss z";
 	
 	public static String toGMTString(Date date) {
-		Calendar calendar = new GregorianCalendar();
-		calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
-
-		DateFormat gmtFormat = new SimpleDateFormat(GMT_FORMAT);
-		gmtFormat.setCalendar(calendar);
-		
-		return gmtFormat.format(date);
+		return HttpDate.format(date.getTime());
 	}
 	
 	public static Date fromGMTString(String dateString) throws ParseException {
-		Calendar calendar = new GregorianCalendar();
-		calendar.setTimeZone(TimeZone.getTimeZone("GMT"));
-
-		DateFormat gmtFormat = new SimpleDateFormat(GMT_FORMAT);
-		gmtFormat.setCalendar(calendar);
-	
-		return gmtFormat.parse(dateString);
+		long millis = HttpDate.parse(dateString);
+		if (millis < 0)
+			throw new ParseException("Unparseable date: \"" + dateString + "\"", 0);
+		return new Date(millis);
 	}
 	
 	public static void main(String[] args) throws Exception {
@@ -0,0 +1,204 @@
+/*
+ * LatencyHistogram.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in nanoseconds that many threads can record into
+ * without locking. As in HdrHistogram the buckets are log-linear: every
+ * power of two is split into {@link #SUB_BUCKETS} equal buckets, so any
+ * recorded value is known to within about 6%, from single nanoseconds up to
+ * {@link #MAX_VALUE}. Larger values are counted as {@link #MAX_VALUE}.
+ *
+ * Reading while others record gives a view that may miss the latest few
+ * values, which is fine for statistics.
+ */
+public class LatencyHistogram {
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int MAX_BITS = 36;
+
+	/**
+	 * The largest value told apart, a little over a minute.
+	 */
+	public static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+
+	private static final int BUCKETS = index(MAX_VALUE) + 1;
+
+	private final AtomicLongArray counts;
+
+	public LatencyHistogram() {
+		this.counts = new AtomicLongArray(BUCKETS);
+	}
+
+	/**
+	 * Counts one value.
+	 *
+	 * @param nanos
+	 *            The duration.
+	 */
+	public void record(long nanos) {
+		counts.incrementAndGet(index(nanos));
+	}
+
+	/**
+	 * Adds the counts of another histogram to this one.
+	 *
+	 * @param other
+	 *            The histogram to add.
+	 */
+	public void add(LatencyHistogram other) {
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = other.counts.get(i);
+			if (count != 0)
+				counts.addAndGet(i, count);
+		}
+	}
+
+	/**
+	 * Gets the values recorded since an earlier copy of this histogram was
+	 * made, e.g. to follow a histogram that is never reset.
+	 *
+	 * @param earlier
+	 *            A copy made with {@link #add(LatencyHistogram)} on an empty
+	 *            histogram.
+	 * @return a histogram of its own with the difference
+	 */
+	public LatencyHistogram since(LatencyHistogram earlier) {
+		LatencyHistogram difference = new LatencyHistogram();
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = counts.get(i) - earlier.counts.get(i);
+			if (count > 0)
+				difference.counts.set(i, count);
+		}
+		return difference;
+	}
+
+	/**
+	 * Forgets all values.
+	 */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++)
+			counts.set(i, 0);
+	}
+
+	/**
+	 * Gets the number of values recorded.
+	 *
+	 * @return the count
+	 */
+	public long getCount() {
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++)
+			total += counts.get(i);
+		return total;
+	}
+
+	/**
+	 * Gets the sum of all values, each taken as the middle of its bucket.
+	 *
+	 * @return the approximate sum in nanoseconds
+	 */
+	public long getSum() {
+		long sum = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			long count = counts.get(i);
+			if (count != 0)
+				sum += count * ((lowest(i) + highest(i)) / 2);
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the value below which a fraction of all values lie, e.g. the
+	 * 0.99 quantile is the p99.
+	 *
+	 * @param quantile
+	 *            The fraction, between 0 and 1.
+	 * @return the highest value of the bucket the quantile falls in, or 0 if
+	 *         nothing was recorded
+	 */
+	public long getValueAtQuantile(double quantile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			snapshot[i] = counts.get(i);
+			total += snapshot[i];
+		}
+		if (total == 0)
+			return 0;
+
+		long rank = (long) Math.ceil(quantile * total);
+		if (rank < 1)
+			rank = 1;
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= rank)
+				return highest(i);
+		}
+		return MAX_VALUE;
+	}
+
+	/**
+	 * Gets the number of values at or below a bound, for cumulative buckets
+	 * as e.g. Prometheus expects them.
+	 *
+	 * @param nanos
+	 *            The bound.
+	 * @return the count of values whose bucket lies at or below the bound
+	 */
+	public long getCountAtOrBelow(long nanos) {
+		long total = 0;
+		for (int i = 0; i < BUCKETS && highest(i) <= nanos; i++)
+			total += counts.get(i);
+		return total;
+	}
+
+	private static int index(long value) {
+		if (value < 0)
+			value = 0;
+		else if (value > MAX_VALUE)
+			value = MAX_VALUE;
+		int msb = 63 - Long.numberOfLeadingZeros(value | 1);
+		if (msb < SUB_BITS)
+			return (int) value;
+		int shift = msb - SUB_BITS;
+		return ((shift + 1) << SUB_BITS) + (int) (value >>> shift)
+				- SUB_BUCKETS;
+	}
+
+	private static long lowest(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = (index >> SUB_BITS) - 1;
+		return (long) ((index & (SUB_BUCKETS - 1)) + SUB_BUCKETS) << shift;
+	}
+
+	private static long highest(int index) {
+		if (index < SUB_BUCKETS)
+			return index;
+		int shift = (index >> SUB_BITS) - 1;
+		return lowest(index) + (1L << shift) - 1;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Launcher.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs a {@link Server} without a window, for machines without a display:
+ *
+ * <pre>
+ * java -cp bin server.Launcher [-config sws.conf] [key=value ...]
+ * </pre>
+ *
+ * The configuration file, <tt>sws.conf</tt> in the working directory unless
+ * given, is read first and the pairs on the command line go over it; see
+ * {@link ServerConfig} for the keys. The file is read again when it changes,
+ * see {@link ConfigWatcher}. The server runs on the main thread until the
+ * process is told to end, when it stops taking connections and writes out
+ * its logs.
+ */
+public class Launcher {
+	private static final String DEFAULT_CONFIG_FILE = "sws.conf";
+
+	public static void main(String[] args) {
+		File file = new File(DEFAULT_CONFIG_FILE);
+		List<String> pairs = new ArrayList<String>();
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-config") && i + 1 < args.length) {
+				file = new File(args[++i]);
+				if (!file.exists()) {
+					System.err.println("No such configuration file: " + file);
+					System.exit(2);
+				}
+			} else if (args[i].indexOf('=') > 0) {
+				pairs.add(args[i]);
+			} else {
+				System.err.println("usage: Launcher [-config file] [key=value ...]");
+				System.exit(2);
+			}
+		}
+
+		String[] overrides = pairs.toArray(new String[pairs.size()]);
+		ServerConfig config = ServerConfig.load(file).with(overrides);
+		if (!new File(config.getRootDirectory()).isDirectory()) {
+			System.err.println("No such root directory: "
+					+ config.getRootDirectory());
+			System.exit(2);
+		}
+
+		final boolean[] failed = new boolean[1];
+		final Server server = new Server(config, new ServerListener() {
+			@Override
+			public void serverFailed(Exception e) {
+				System.err.println("Server failed: " + e);
+				failed[0] = true;
+			}
+		});
+		// The configuration may well be in the root, but is not content
+		server.getMetadataTree().exclude(file);
+		final ConfigWatcher watcher = new ConfigWatcher(server, file, overrides);
+		Runtime.getRuntime().addShutdownHook(new Thread("shutdown") {
+			@Override
+			public void run() {
+				watcher.stop();
+				server.stop();
+			}
+		});
+		watcher.start();
+
+		System.out.println("Serving " + config.getRootDirectory()
+				+ " on port " + config.getPort());
+		server.run();
+		if (failed[0])
+			System.exit(1);
+	}
+}
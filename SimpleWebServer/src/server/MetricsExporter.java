@@ -0,0 +1,189 @@
+/*
+ * MetricsExporter.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Renders the metrics of a {@link Server} in the Prometheus text exposition
+ * format (version 0.0.4), to be scraped from the metrics path.
+ *
+ * The metrics are not served unless a path is configured, as they are not
+ * meant for every visitor. The access rules apply to the path like to any
+ * other, so it should be given to the scraper's user only, e.g.
+ * <tt>/metrics:prometheus</tt> in <tt>permissions.txt</tt>.
+ *
+ * Everything rendered is read from striped counters and lock-free
+ * histograms, so a scrape never holds up a request. The text is built in a
+ * buffer sized after the previous scrape, so it is not grown piece by piece.
+ */
+public class MetricsExporter {
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	/**
+	 * Upper bounds of the request duration histogram buckets, in seconds.
+	 */
+	private static final double[] BUCKETS = { 0.0005, 0.001, 0.0025, 0.005,
+			0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10 };
+	private static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+	private static final long[] WINDOWS = { ServerMetrics.ONE_MINUTE,
+			ServerMetrics.FIVE_MINUTES };
+	private static final String[] WINDOW_LABELS = { "1m", "5m" };
+	private static final double NANOS_PER_SECOND = TimeUnit.SECONDS
+			.toNanos(1);
+
+	private final Server server;
+	private volatile int lastLength = 4096;
+
+	public MetricsExporter(Server server) {
+		this.server = server;
+	}
+
+	/**
+	 * Renders all metrics.
+	 *
+	 * @return the exposition text, UTF-8 encoded
+	 */
+	public byte[] render() {
+		ServerMetrics metrics = server.getMetrics();
+		StringBuilder sb = new StringBuilder(lastLength + lastLength / 8);
+
+		header(sb, "sws_requests_total", "counter",
+				"Requests served, by status class.");
+		for (int i = 0; i < ServerMetrics.STATUS_CLASSES.length; i++) {
+			sb.append("sws_requests_total{code=\"")
+					.append(ServerMetrics.STATUS_CLASSES[i]).append("\"} ")
+					.append(metrics.getRequests(i)).append('\n');
+		}
+
+		header(sb, "sws_response_bytes_total", "counter",
+				"Body bytes sent in responses of known length.");
+		sample(sb, "sws_response_bytes_total", metrics.getBytes());
+
+		header(sb, "sws_request_duration_seconds", "histogram",
+				"Time taken to serve a request, since the start.");
+		LatencyHistogram latency = metrics.getLatency();
+		for (double bound : BUCKETS) {
+			sb.append("sws_request_duration_seconds_bucket{le=\"")
+					.append(bound).append("\"} ")
+					.append(latency.getCountAtOrBelow(
+							(long) (bound * NANOS_PER_SECOND)))
+					.append('\n');
+		}
+		// Counted last, so +Inf is never below any other bucket
+		long count = metrics.getRequests();
+		sb.append("sws_request_duration_seconds_bucket{le=\"+Inf\"} ")
+				.append(Math.max(count, latency.getCountAtOrBelow(
+						LatencyHistogram.MAX_VALUE))).append('\n');
+		sample(sb, "sws_request_duration_seconds_sum",
+				metrics.getServiceTime() / NANOS_PER_SECOND);
+		sample(sb, "sws_request_duration_seconds_count", count);
+
+		header(sb, "sws_request_duration_window_seconds", "gauge",
+				"Request duration quantiles over a recent window, by status and size class.");
+		for (int w = 0; w < WINDOWS.length; w++) {
+			quantiles(sb, WINDOW_LABELS[w], "all", "all",
+					metrics.getLatency(WINDOWS[w]));
+			for (int s = 0; s < ServerMetrics.STATUS_CLASSES.length; s++) {
+				for (int z = 0; z < ServerMetrics.SIZE_CLASSES.length; z++) {
+					LatencyHistogram histogram = metrics.getLatency(
+							WINDOWS[w], s, z);
+					if (histogram.getCount() > 0)
+						quantiles(sb, WINDOW_LABELS[w],
+								ServerMetrics.STATUS_CLASSES[s],
+								ServerMetrics.SIZE_CLASSES[z], histogram);
+				}
+			}
+		}
+
+		header(sb, "sws_cache_hits_total", "counter",
+				"Lookups answered from a cache.");
+		cache(sb, "sws_cache_hits_total", "resolver",
+				server.getResourceResolver().getHits());
+		cache(sb, "sws_cache_hits_total", "compression", server
+				.getContentCompressor().getHits());
+		header(sb, "sws_cache_misses_total", "counter",
+				"Lookups a cache could not answer.");
+		cache(sb, "sws_cache_misses_total", "resolver", server
+				.getResourceResolver().getMisses());
+		cache(sb, "sws_cache_misses_total", "compression", server
+				.getContentCompressor().getMisses());
+
+		header(sb, "sws_worker_queue_depth", "gauge",
+				"Requests waiting for a worker.");
+		sample(sb, "sws_worker_queue_depth", server.getQueueDepth());
+		header(sb, "sws_workers_busy", "gauge", "Workers serving a request.");
+		sample(sb, "sws_workers_busy", server.getActiveWorkers());
+		header(sb, "sws_open_connections", "gauge",
+				"Client connections currently open.");
+		sample(sb, "sws_open_connections", server.getOpenConnections());
+		header(sb, "sws_rate_limited_total", "counter",
+				"Connections turned away by the rate limiter.");
+		sample(sb, "sws_rate_limited_total", metrics.getRejected());
+		header(sb, "sws_access_log_dropped_total", "counter",
+				"Access log records lost because the writer fell behind.");
+		sample(sb, "sws_access_log_dropped_total", server.getAccessLog()
+				.getDropped());
+		header(sb, "sws_slow_log_dropped_total", "counter",
+				"Slow request log entries lost because the writer fell behind.");
+		sample(sb, "sws_slow_log_dropped_total", server.getSlowRequestLog()
+				.getDropped());
+
+		lastLength = sb.length();
+		return sb.toString().getBytes(StandardCharsets.UTF_8);
+	}
+
+	private static void header(StringBuilder sb, String name, String type,
+			String help) {
+		sb.append("# HELP ").append(name).append(' ').append(help)
+				.append('\n');
+		sb.append("# TYPE ").append(name).append(' ').append(type)
+				.append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, long value) {
+		sb.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void sample(StringBuilder sb, String name, double value) {
+		sb.append(name).append(' ').append(value).append('\n');
+	}
+
+	private static void cache(StringBuilder sb, String name, String cache,
+			long value) {
+		sb.append(name).append("{cache=\"").append(cache).append("\"} ")
+				.append(value).append('\n');
+	}
+
+	private static void quantiles(StringBuilder sb, String window,
+			String code, String size, LatencyHistogram histogram) {
+		for (double quantile : QUANTILES) {
+			sb.append("sws_request_duration_window_seconds{window=\"")
+					.append(window).append("\",code=\"").append(code)
+					.append("\",size=\"").append(size)
+					.append("\",quantile=\"").append(quantile).append("\"} ")
+					.append(histogram.getValueAtQuantile(quantile)
+							/ NANOS_PER_SECOND).append('\n');
+		}
+	}
+}
@@ -0,0 +1,182 @@
+/*
+ * NegativeLookupCache.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Remembers request paths that are known not to exist. A bloom filter sits in
+ * front of a small LRU set: the filter answers "definitely not missing" for
+ * ordinary traffic with a few bit tests and no locking, and only paths that
+ * pass it are confirmed against the LRU set. When a path is created, it and
+ * the paths below it are taken out of the set; the filter cannot forget
+ * single paths, so it is rebuilt from the set once enough paths have been
+ * added to it.
+ */
+public class NegativeLookupCache {
+	private static final int HASHES = 4;
+	private static final int BITS_PER_ENTRY = 16;
+
+	private final AtomicLongArray bits;
+	private final int mask;
+	private final int capacity;
+	private final Map<String, Boolean> missing;
+	private int added;
+
+	/**
+	 * @param capacity
+	 *            The maximum number of missing paths to remember.
+	 */
+	public NegativeLookupCache(final int capacity) {
+		// Round the filter up to a power of two so a mask picks the bit
+		int size = Integer.highestOneBit(Math.max(64, capacity
+				* BITS_PER_ENTRY - 1)) << 1;
+		this.bits = new AtomicLongArray(size / 64);
+		this.mask = size - 1;
+		this.capacity = capacity;
+		this.missing = new LinkedHashMap<String, Boolean>(capacity, 0.75f,
+				true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+				return size() > capacity;
+			}
+		};
+	}
+
+	/**
+	 * Checks whether the path is known to be missing.
+	 *
+	 * @param path
+	 *            A normalized request path.
+	 * @return true if the path was recorded as missing since the last change.
+	 */
+	public boolean contains(String path) {
+		int h1 = path.hashCode();
+		int h2 = mix(h1);
+		for (int i = 0; i < HASHES; i++) {
+			int bit = (h1 + i * h2) & mask;
+			if ((bits.get(bit >>> 6) & (1L << bit)) == 0)
+				return false;
+		}
+		synchronized (missing) {
+			return missing.get(path) != null;
+		}
+	}
+
+	/**
+	 * Records a path as missing.
+	 *
+	 * @param path
+	 *            A normalized request path.
+	 */
+	public void add(String path) {
+		synchronized (missing) {
+			missing.put(path, Boolean.TRUE);
+			// Set bits for paths long evicted or removed only cost lookups,
+			// but once they pile up the filter stops filtering
+			if (++added > 2 * capacity) {
+				for (int i = 0; i < bits.length(); i++)
+					bits.set(i, 0);
+				added = 0;
+				for (String p : missing.keySet()) {
+					setBits(p);
+					added++;
+				}
+				return;
+			}
+		}
+		setBits(path);
+	}
+
+	/**
+	 * Forgets a path, e.g. after it was created.
+	 *
+	 * @param path
+	 *            A normalized request path.
+	 */
+	public void remove(String path) {
+		synchronized (missing) {
+			missing.remove(path);
+		}
+	}
+
+	/**
+	 * Forgets a path and everything below it, e.g. after a directory was
+	 * created.
+	 *
+	 * @param path
+	 *            A normalized request path.
+	 */
+	public void removeTree(String path) {
+		String prefix = path.equals("/") ? path : path + "/";
+		synchronized (missing) {
+			Iterator<String> it = missing.keySet().iterator();
+			while (it.hasNext()) {
+				String p = it.next();
+				if (p.equals(path) || p.startsWith(prefix))
+					it.remove();
+			}
+		}
+	}
+
+	private void setBits(String path) {
+		int h1 = path.hashCode();
+		int h2 = mix(h1);
+		for (int i = 0; i < HASHES; i++) {
+			int bit = (h1 + i * h2) & mask;
+			long word, updated;
+			do {
+				word = bits.get(bit >>> 6);
+				updated = word | (1L << bit);
+			} while (word != updated
+					&& !bits.compareAndSet(bit >>> 6, word, updated));
+		}
+	}
+
+	/**
+	 * Forgets every missing path.
+	 */
+	public void clear() {
+		synchronized (missing) {
+			missing.clear();
+			for (int i = 0; i < bits.length(); i++)
+				bits.set(i, 0);
+			added = 0;
+		}
+	}
+
+	/**
+	 * A second hash derived from the first, forced odd so that successive
+	 * probes never collapse onto the same bit.
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		return h | 1;
+	}
+}
@@ -0,0 +1,183 @@
+/*
+ * RequestBody.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+import protocol.HttpRequest;
+import protocol.Protocol;
+import protocol.ProtocolException;
+
+/**
+ * The body of a request, framed either by <tt>Content-Length</tt> or by the
+ * chunked transfer coding. The body is moved from the socket into a file as
+ * it arrives, so it never has to fit in memory.
+ */
+public class RequestBody {
+	private final ByteBufferInputStreamAdapter in;
+	private final long length;
+	private final long limit;
+	private boolean consumed;
+
+	/**
+	 * Works out the framing of the body from the header, before anything of
+	 * the body is read.
+	 *
+	 * @param in
+	 *            The stream the header was read from.
+	 * @param header
+	 *            The request header fields, with lower case keys.
+	 * @param limit
+	 *            The largest body accepted, in bytes.
+	 * @throws ProtocolException
+	 *             With status 411 if the request has no framing at all, 413
+	 *             if the declared length exceeds the limit, 501 for transfer
+	 *             codings other than chunked, or 400 if the framing is
+	 *             invalid.
+	 */
+	public RequestBody(ByteBufferInputStreamAdapter in,
+			Map<String, String> header, long limit) throws ProtocolException {
+		this.in = in;
+		this.limit = limit;
+
+		String transferEncoding = header.get("transfer-encoding");
+		String contentLength = header.get("content-length");
+		if (transferEncoding != null) {
+			// Chunked has to come last, we do not decode any other coding
+			if (!transferEncoding.trim().equalsIgnoreCase(Protocol.CHUNKED))
+				throw new ProtocolException(Protocol.NOT_IMPLEMENTED_CODE,
+						Protocol.NOT_IMPLEMENTED_TEXT);
+			this.length = -1;
+		} else if (contentLength != null) {
+			try {
+				this.length = Long.parseLong(contentLength.trim());
+			} catch (NumberFormatException e) {
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+						Protocol.BAD_REQUEST_TEXT);
+			}
+			if (this.length < 0)
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+						Protocol.BAD_REQUEST_TEXT);
+			if (this.length > limit)
+				throw new ProtocolException(Protocol.PAYLOAD_TOO_LARGE_CODE,
+						Protocol.PAYLOAD_TOO_LARGE_TEXT);
+		} else {
+			throw new ProtocolException(Protocol.LENGTH_REQUIRED_CODE,
+					Protocol.LENGTH_REQUIRED_TEXT);
+		}
+	}
+
+	/**
+	 * Whether the body is sent in the chunked transfer coding.
+	 *
+	 * @return true if chunked
+	 */
+	public boolean isChunked() {
+		return length < 0;
+	}
+
+	/**
+	 * Whether the whole body has been read off the connection, so that the
+	 * connection could carry another request.
+	 *
+	 * @return true once {@link #transferTo(FileChannel)} succeeded
+	 */
+	public boolean isConsumed() {
+		return consumed;
+	}
+
+	/**
+	 * Writes the body to the start of a file.
+	 *
+	 * @param file
+	 *            The file to write to, empty.
+	 * @return The length of the body.
+	 * @throws ProtocolException
+	 *             With status 413 if a chunked body exceeds the limit, or 400
+	 *             if the chunked coding is invalid.
+	 * @throws IOException
+	 *             If the connection ends early, or if reading or writing
+	 *             fails.
+	 */
+	public long transferTo(FileChannel file) throws ProtocolException,
+			IOException {
+		long written;
+		if (isChunked()) {
+			written = 0;
+			long size;
+			while ((size = readChunkSize()) > 0) {
+				if (written + size > limit)
+					throw new ProtocolException(
+							Protocol.PAYLOAD_TOO_LARGE_CODE,
+							Protocol.PAYLOAD_TOO_LARGE_TEXT);
+				in.transferTo(file, written, size);
+				written += size;
+				if (!"".equals(HttpRequest.readLine(in)))
+					throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+							Protocol.BAD_REQUEST_TEXT);
+			}
+
+			// Trailer fields are of no use to us, skip up to the empty line
+			String line;
+			do {
+				line = HttpRequest.readLine(in);
+				if (line == null)
+					throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+							Protocol.BAD_REQUEST_TEXT);
+			} while (!line.isEmpty());
+		} else {
+			in.transferTo(file, 0, length);
+			written = length;
+		}
+
+		consumed = true;
+		return written;
+	}
+
+	private long readChunkSize() throws ProtocolException, IOException {
+		String line = HttpRequest.readLine(in);
+		if (line == null)
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+					Protocol.BAD_REQUEST_TEXT);
+
+		// Chunk extensions are ignored
+		int semicolon = line.indexOf(';');
+		if (semicolon >= 0)
+			line = line.substring(0, semicolon);
+		line = line.trim();
+		if (line.isEmpty() || line.length() > 15)
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+					Protocol.BAD_REQUEST_TEXT);
+		long size;
+		try {
+			size = Long.parseLong(line, 16);
+		} catch (NumberFormatException e) {
+			size = -1;
+		}
+		if (size < 0 || line.charAt(0) == '+')
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+					Protocol.BAD_REQUEST_TEXT);
+		return size;
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ * RequestEvents.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the life of a request, so that samples
+ * and slow requests in a recording can be told apart by URI. All of them
+ * are disabled unless a recording turns them on, e.g. with
+ *
+ * <pre>
+ * jcmd &lt;pid&gt; JFR.start settings=default settings=sws.jfc
+ * </pre>
+ *
+ * with the <tt>sws.jfc</tt> next to the sources, which enables the
+ * <tt>sws.*</tt> events. While disabled, an event costs a check of
+ * {@link Event#shouldCommit()}; callers fill in the fields only after that
+ * check.
+ */
+public final class RequestEvents {
+	private RequestEvents() {
+	}
+
+	@Name("sws.Accept")
+	@Label("Connection Accepted")
+	@Category({ "SimpleWebServer", "Connection" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Accept extends Event {
+		@Label("Client")
+		public String client;
+	}
+
+	@Name("sws.RateLimit")
+	@Label("Rate Limit Decision")
+	@Category({ "SimpleWebServer", "Connection" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class RateLimit extends Event {
+		@Label("Client")
+		public String client;
+
+		@Label("Allowed")
+		public boolean allowed;
+
+		@Label("Whitelisted")
+		public boolean whitelisted;
+	}
+
+	@Name("sws.Queued")
+	@Label("Waiting For Worker")
+	@Description("From the selector handing the connection over to a worker picking it up")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Queued extends Event {
+		@Label("Client")
+		public String client;
+	}
+
+	@Name("sws.Parse")
+	@Label("Request Parsed")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Parse extends Event {
+		@Label("Method")
+		public String method;
+
+		@Label("URI")
+		public String uri;
+
+		@Label("Status")
+		@Description("The error status if the request could not be read, else 0")
+		public int status;
+	}
+
+	@Name("sws.CacheLookup")
+	@Label("Resource Lookup")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class CacheLookup extends Event {
+		@Label("URI")
+		public String uri;
+
+		@Label("Hit")
+		public boolean hit;
+	}
+
+	@Name("sws.Auth")
+	@Label("Credentials Verified")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Auth extends Event {
+		@Label("URI")
+		public String uri;
+
+		@Label("User")
+		@Description("The authenticated user, null if denied")
+		public String user;
+
+		@Label("Stale Nonce")
+		public boolean stale;
+	}
+
+	@Name("sws.Transfer")
+	@Label("Response Sent")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Transfer extends Event {
+		@Label("URI")
+		public String uri;
+
+		@Label("Status")
+		public int status;
+
+		@Label("Body Length")
+		@Description("-1 if streamed")
+		@DataAmount
+		public long bytes;
+	}
+
+	@Name("sws.Request")
+	@Label("Request Handled")
+	@Description("All of ConnectionHandler.run for one request")
+	@Category({ "SimpleWebServer", "Request" })
+	@Enabled(false)
+	@StackTrace(false)
+	public static class Request extends Event {
+		@Label("Client")
+		public String client;
+
+		@Label("Method")
+		public String method;
+
+		@Label("URI")
+		public String uri;
+
+		@Label("Status")
+		public int status;
+
+		@Label("Body Length")
+		@Description("-1 if streamed")
+		@DataAmount
+		public long bytes;
+
+		@Label("User")
+		public String user;
+	}
+}
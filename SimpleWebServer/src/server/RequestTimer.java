@@ -0,0 +1,89 @@
+/*
+ * RequestTimer.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+/**
+ * Splits the time a request took into the phases it went through. The
+ * handler calls {@link #lap(int)} at the end of every phase, and the time
+ * since the previous lap is added to that phase, so the phases always add
+ * up to the total.
+ */
+public class RequestTimer {
+	public static final int QUEUE = 0;
+	public static final int PARSE = 1;
+	public static final int RESOLVE = 2;
+	public static final int AUTH = 3;
+	public static final int CACHE = 4;
+	public static final int BODY = 5;
+	public static final int WRITE = 6;
+
+	/**
+	 * The names of the phases, by index.
+	 */
+	public static final String[] PHASES = { "queue", "parse", "resolve",
+			"auth", "cache", "body", "write" };
+
+	private final long start;
+	private final long[] phases;
+	private long last;
+
+	/**
+	 * Starts timing, at the time the request is queued for a worker.
+	 */
+	public RequestTimer() {
+		this.start = System.nanoTime();
+		this.last = start;
+		this.phases = new long[PHASES.length];
+	}
+
+	/**
+	 * Ends a phase.
+	 *
+	 * @param phase
+	 *            One of the phase constants.
+	 */
+	public void lap(int phase) {
+		long now = System.nanoTime();
+		phases[phase] += now - last;
+		last = now;
+	}
+
+	/**
+	 * Gets the time spent in a phase.
+	 *
+	 * @param phase
+	 *            One of the phase constants.
+	 * @return the time in nanoseconds
+	 */
+	public long get(int phase) {
+		return phases[phase];
+	}
+
+	/**
+	 * Gets the time from queueing to the last lap.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getTotal() {
+		return last - start;
+	}
+}
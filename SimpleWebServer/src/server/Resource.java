@@ -0,0 +1,135 @@
+/*
+ * Resource.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+
+/**
+ * The result of resolving a request URI against the document root. It holds
+ * the normalized request path together with the attributes of the file that
+ * would be served for it, as recorded by the {@link FileMetadataTree}.
+ *
+ * Instances are immutable and are shared between worker threads through the
+ * {@link ResourceResolver} cache.
+ */
+public class Resource {
+	private final String path;
+	private final String filePath;
+	private final File file;
+	private final boolean directory;
+	private final FileMetadata metadata;
+
+	/**
+	 * @param path
+	 *            The normalized request path, always starting with a slash.
+	 * @param filePath
+	 *            The path of the file to be served, which differs from the
+	 *            request path for directories.
+	 * @param file
+	 *            The file to be served, the index file for directories.
+	 * @param directory
+	 *            Whether the request path names a directory.
+	 * @param metadata
+	 *            The attributes of the served file, null if there is nothing
+	 *            to serve.
+	 */
+	public Resource(String path, String filePath, File file,
+			boolean directory, FileMetadata metadata) {
+		this.path = path;
+		this.filePath = filePath;
+		this.file = file;
+		this.directory = directory;
+		this.metadata = metadata;
+	}
+
+	/**
+	 * Creates a resource for a path that has nothing to serve.
+	 *
+	 * @param path
+	 *            The normalized request path.
+	 * @param directory
+	 *            Whether the path is a directory without an index file.
+	 * @return A resource for which {@link #exists()} is false.
+	 */
+	public static Resource missing(String path, boolean directory) {
+		return new Resource(path, null, null, directory, null);
+	}
+
+	/**
+	 * The decoded and normalized request path, e.g. <tt>/dir/page.html</tt>.
+	 *
+	 * @return the path
+	 */
+	public String getPath() {
+		return path;
+	}
+
+	/**
+	 * The path of the file to be sent in the {@link FileMetadataTree}, e.g.
+	 * <tt>/dir/index.html</tt> for the request path <tt>/dir</tt>, or null if
+	 * nothing exists for the path.
+	 *
+	 * @return the file path
+	 */
+	public String getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * The file to be sent, or null if nothing exists for the path.
+	 *
+	 * @return the file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * The attributes of the file to be sent, or null if nothing exists for
+	 * the path.
+	 *
+	 * @return the metadata
+	 */
+	public FileMetadata getMetadata() {
+		return metadata;
+	}
+
+	public boolean exists() {
+		return metadata != null;
+	}
+
+	public boolean isDirectory() {
+		return directory;
+	}
+
+	public long lastModified() {
+		return metadata == null ? 0 : metadata.lastModified();
+	}
+
+	public long length() {
+		return metadata == null ? 0 : metadata.length();
+	}
+
+	public String getETag() {
+		return metadata == null ? null : metadata.getETag();
+	}
+}
@@ -0,0 +1,360 @@
+/*
+ * ResourceResolver.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+import protocol.Protocol;
+import protocol.ProtocolException;
+
+/**
+ * Maps request URIs to {@link Resource}s below the document root. The raw URI
+ * is stripped of its query string and fragment, percent-decoded as UTF-8 and
+ * normalized, and any path that would climb above the document root is
+ * rejected. The attributes come from the {@link FileMetadataTree}, so
+ * resolving never touches the disk. Resolved resources are memoised in a
+ * bounded LRU cache keyed by the raw URI, so a warm URI is not even decoded
+ * again; when the tree reports a change only the entries for the changed
+ * path, the paths below it and its directory are dropped. Paths that do
+ * not exist go to a {@link NegativeLookupCache} instead, so that a flood of
+ * bogus URIs cannot evict the resources that are actually being served.
+ */
+public class ResourceResolver {
+	private final FileMetadataTree tree;
+	private final Map<String, Resource> cache;
+	private final NegativeLookupCache missing;
+	private final LongAdder hits;
+	private final LongAdder misses;
+	private long generation;
+	private volatile int capacity;
+
+	/**
+	 * @param tree
+	 *            The metadata of the document root.
+	 * @param capacity
+	 *            The maximum number of URIs to remember.
+	 * @param missingCapacity
+	 *            The maximum number of missing paths to remember.
+	 */
+	public ResourceResolver(FileMetadataTree tree, int capacity,
+			int missingCapacity) {
+		this.tree = tree;
+		this.capacity = capacity;
+		this.missing = new NegativeLookupCache(missingCapacity);
+		this.hits = new LongAdder();
+		this.misses = new LongAdder();
+		this.cache = new LinkedHashMap<String, Resource>(capacity, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Resource> eldest) {
+				return size() > ResourceResolver.this.capacity;
+			}
+		};
+		tree.addListener(new FileMetadataTree.Listener() {
+			@Override
+			public void contentChanged(String path) {
+				if (path == null)
+					clear();
+				else
+					invalidate(path);
+			}
+		});
+	}
+
+	/**
+	 * Resolves the supplied request URI.
+	 *
+	 * @param uri
+	 *            The request URI exactly as it was received.
+	 * @return The resolved resource, never null.
+	 * @throws ProtocolException
+	 *             With {@link Protocol#BAD_REQUEST_CODE} for malformed URIs
+	 *             and {@link Protocol#FORBIDDEN_CODE} for paths escaping the
+	 *             document root.
+	 */
+	public Resource resolve(String uri) throws ProtocolException {
+		RequestEvents.CacheLookup event = new RequestEvents.CacheLookup();
+		event.begin();
+		Resource resource;
+		long seen;
+		synchronized (cache) {
+			resource = cache.get(uri);
+			seen = generation;
+		}
+		if (resource != null) {
+			hits.increment();
+			commit(event, uri, true);
+			return resource;
+		}
+
+		String path = normalize(decode(stripQuery(uri)));
+		if (missing.contains(path)) {
+			hits.increment();
+			commit(event, uri, true);
+			return Resource.missing(path, false);
+		}
+		misses.increment();
+		resource = lookup(path);
+
+		synchronized (cache) {
+			// Do not cache what the tree may have changed in the meantime
+			if (seen == generation) {
+				if (resource.exists())
+					cache.put(uri, resource);
+				// A directory without an index is there, only not servable,
+				// and the negative cache cannot tell it apart
+				else if (!resource.isDirectory())
+					missing.add(path);
+			}
+		}
+		commit(event, uri, false);
+		return resource;
+	}
+
+	private static void commit(RequestEvents.CacheLookup event, String uri,
+			boolean hit) {
+		event.end();
+		if (event.shouldCommit()) {
+			event.uri = uri;
+			event.hit = hit;
+			event.commit();
+		}
+	}
+
+	/**
+	 * Gets the number of URIs answered from the caches, known or missing.
+	 *
+	 * @return the hit count since the start
+	 */
+	public long getHits() {
+		return hits.sum();
+	}
+
+	/**
+	 * Gets the number of URIs that had to be resolved.
+	 *
+	 * @return the miss count since the start
+	 */
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	/**
+	 * Changes the number of URIs to remember, dropping the least recently
+	 * used ones if there are too many now.
+	 *
+	 * @param capacity
+	 *            The maximum number of URIs.
+	 */
+	public void setCapacity(int capacity) {
+		synchronized (cache) {
+			this.capacity = capacity;
+			Iterator<String> it = cache.keySet().iterator();
+			while (cache.size() > capacity && it.hasNext()) {
+				it.next();
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Forgets every resolved resource, e.g. after the content changed.
+	 */
+	public void clear() {
+		synchronized (cache) {
+			cache.clear();
+			missing.clear();
+			generation++;
+		}
+	}
+
+	/**
+	 * Forgets what was resolved for a path that changed: the path itself,
+	 * everything below it, and its directory, whose index file it may be.
+	 *
+	 * @param path
+	 *            The changed request path.
+	 */
+	public void invalidate(String path) {
+		String prefix = path.equals("/") ? path : path + "/";
+		int slash = path.lastIndexOf(Protocol.SLASH);
+		String parent = slash <= 0 ? "/" : path.substring(0, slash);
+		synchronized (cache) {
+			Iterator<Resource> it = cache.values().iterator();
+			while (it.hasNext()) {
+				Resource resource = it.next();
+				if (affects(path, prefix, resource.getPath())
+						|| affects(path, prefix, resource.getFilePath()))
+					it.remove();
+			}
+			missing.removeTree(path);
+			missing.remove(parent);
+			generation++;
+		}
+	}
+
+	private static boolean affects(String path, String prefix, String p) {
+		return p != null && (p.equals(path) || p.startsWith(prefix));
+	}
+
+	/**
+	 * Looks up the attributes for a normalized path.
+	 */
+	private Resource lookup(String path) {
+		FileMetadata metadata = tree.get(path);
+		if (metadata == null)
+			return Resource.missing(path, false);
+		if (!metadata.isDirectory())
+			return new Resource(path, path, tree.toFile(path), false, metadata);
+
+		// Look for default index.html file in a directory
+		String index = (path.equals("/") ? "" : path) + Protocol.SLASH
+				+ Protocol.DEFAULT_FILE;
+		metadata = tree.get(index);
+		if (metadata == null || metadata.isDirectory())
+			return Resource.missing(path, true);
+		return new Resource(path, index, tree.toFile(index), true, metadata);
+	}
+
+	/**
+	 * Removes the query string and fragment as well as the scheme and
+	 * authority of an absolute URI.
+	 */
+	static String stripQuery(String uri) throws ProtocolException {
+		int end = uri.length();
+		int query = uri.indexOf('?');
+		if (query >= 0)
+			end = query;
+		int fragment = uri.indexOf('#');
+		if (fragment >= 0 && fragment < end)
+			end = fragment;
+		String path = uri.substring(0, end);
+
+		// e.g. http://www.rose-hulman.edu/somedir/page.html
+		int scheme = path.indexOf("://");
+		if (scheme > 0 && path.charAt(0) != Protocol.SLASH) {
+			int slash = path.indexOf(Protocol.SLASH, scheme + 3);
+			path = slash < 0 ? "/" : path.substring(slash);
+		}
+
+		if (path.isEmpty() || path.charAt(0) != Protocol.SLASH) {
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+					Protocol.BAD_REQUEST_TEXT);
+		}
+		return path;
+	}
+
+	/**
+	 * Percent-decodes the path as UTF-8. Unlike {@link java.net.URLDecoder}
+	 * a '+' is left alone, since it only means space in form data.
+	 */
+	static String decode(String path) throws ProtocolException {
+		if (path.indexOf('%') < 0)
+			return path;
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(path.length());
+		for (int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if (c != '%') {
+				if (c >= 0x80) {
+					// Not legal in a URI, but keep it rather than guess
+					byte[] raw = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+					bytes.write(raw, 0, raw.length);
+				} else {
+					bytes.write(c);
+				}
+				continue;
+			}
+			if (i + 2 >= path.length())
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+						Protocol.BAD_REQUEST_TEXT);
+			int hi = Character.digit(path.charAt(i + 1), 16);
+			int lo = Character.digit(path.charAt(i + 2), 16);
+			if (hi < 0 || lo < 0)
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+						Protocol.BAD_REQUEST_TEXT);
+			bytes.write((hi << 4) | lo);
+			i += 2;
+		}
+
+		try {
+			return StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes.toByteArray())).toString();
+		} catch (CharacterCodingException e) {
+			throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+					Protocol.BAD_REQUEST_TEXT);
+		}
+	}
+
+	/**
+	 * Collapses empty, "." and ".." segments. A ".." that would leave the
+	 * document root is refused rather than clamped.
+	 */
+	static String normalize(String path) throws ProtocolException {
+		List<String> segments = new ArrayList<String>();
+		int start = 1;
+		while (start <= path.length()) {
+			int end = path.indexOf(Protocol.SLASH, start);
+			if (end < 0)
+				end = path.length();
+			String segment = path.substring(start, end);
+			start = end + 1;
+
+			if (segment.isEmpty() || segment.equals("."))
+				continue;
+			if (segment.equals("..")) {
+				if (segments.isEmpty())
+					throw new ProtocolException(Protocol.FORBIDDEN_CODE,
+							Protocol.FORBIDDEN_TEXT);
+				segments.remove(segments.size() - 1);
+				continue;
+			}
+			// Separators and NUL smuggled in through percent-encoding
+			if (segment.indexOf('\\') >= 0 || segment.indexOf('\0') >= 0)
+				throw new ProtocolException(Protocol.BAD_REQUEST_CODE,
+						Protocol.BAD_REQUEST_TEXT);
+			segments.add(segment);
+		}
+
+		if (segments.isEmpty())
+			return "/";
+		StringBuilder sb = new StringBuilder(path.length());
+		for (String segment : segments) {
+			sb.append(Protocol.SLASH);
+			sb.append(segment);
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ * SecuritySnapshot.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Scanner;
+
+/**
+ * The users and access rules in effect, as read from <tt>passwd.txt</tt> and
+ * <tt>permissions.txt</tt> at one point in time. A snapshot never changes
+ * once built, so request threads can use it without any locking; a reload
+ * builds a new snapshot and swaps it in whole, see {@link SecurityWatcher}.
+ *
+ * Passwords are not kept, only the digest HA1 of every user.
+ */
+public class SecuritySnapshot {
+	private final Map<String, String> ha1;
+	private final AccessPolicy accessPolicy;
+	private final long passwdModified;
+	private final long permissionsModified;
+
+	private SecuritySnapshot(Map<String, String> ha1,
+			AccessPolicy accessPolicy, long passwdModified,
+			long permissionsModified) {
+		this.ha1 = Collections.unmodifiableMap(ha1);
+		this.accessPolicy = accessPolicy;
+		this.passwdModified = passwdModified;
+		this.permissionsModified = permissionsModified;
+	}
+
+	/**
+	 * Reads both files. A missing file means no users, or no rules beyond
+	 * the built in ones.
+	 *
+	 * @param passwd
+	 *            The user file, one user and password per line separated by
+	 *            a space.
+	 * @param permissions
+	 *            The rule file, see {@link AccessPolicy}.
+	 * @return the snapshot
+	 */
+	public static SecuritySnapshot load(File passwd, File permissions) {
+		Map<String, String> ha1 = new HashMap<String, String>();
+		if (passwd.exists()) {
+			try {
+				Scanner s = new Scanner(passwd);
+				while (s.hasNextLine()) {
+					String line = s.nextLine().trim();
+					if (line.isEmpty() || line.charAt(0) == '#')
+						continue;
+					String[] splitLine = line.split(" ");
+					if (splitLine.length != 2 || splitLine[1].isEmpty()) {
+						System.err.println("Ignoring user: " + splitLine[0]);
+						continue;
+					}
+					if (!ha1.containsKey(splitLine[0])) {
+						ha1.put(splitLine[0], DigestAuthenticator.ha1(
+								splitLine[0], splitLine[1]));
+					}
+				}
+				s.close();
+			} catch (FileNotFoundException e) {
+				// shouldn't get here
+				e.printStackTrace();
+			}
+		} else {
+			System.out.println("No passwd file found");
+		}
+
+		return new SecuritySnapshot(ha1, AccessPolicy.load(permissions),
+				passwd.lastModified(), permissions.lastModified());
+	}
+
+	/**
+	 * Gets the digest HA1 of a user.
+	 *
+	 * @param user
+	 *            The user name.
+	 * @return the HA1 in lower case hex, or null for an unknown user
+	 */
+	public String getHa1(String user) {
+		return ha1.get(user);
+	}
+
+	/**
+	 * Gets the number of users.
+	 *
+	 * @return the number of users
+	 */
+	public int getUserCount() {
+		return ha1.size();
+	}
+
+	/**
+	 * Gets the rules deciding who may access which path.
+	 *
+	 * @return the access policy
+	 */
+	public AccessPolicy getAccessPolicy() {
+		return accessPolicy;
+	}
+
+	/**
+	 * Whether the files this snapshot was read from were changed since.
+	 *
+	 * @param passwd
+	 *            The user file.
+	 * @param permissions
+	 *            The rule file.
+	 * @return true if either file has another modification time now
+	 */
+	boolean isOutdated(File passwd, File permissions) {
+		return passwd.lastModified() != passwdModified
+				|| permissions.lastModified() != permissionsModified;
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * SecurityWatcher.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the current {@link SecuritySnapshot} and replaces it when
+ * <tt>passwd.txt</tt> or <tt>permissions.txt</tt> change, without a
+ * restart. The files are watched from a thread of their own, which also
+ * builds the new snapshot; request threads only ever read the volatile
+ * reference to the current one.
+ *
+ * If a file disappears the last snapshot stays in effect, so that an editor
+ * replacing the file does not open protected paths up for a moment.
+ */
+public class SecurityWatcher {
+	/**
+	 * How long to wait for more changes before reloading, so a file that is
+	 * written in several steps is read once, when complete.
+	 */
+	private static final long SETTLE_TIME = 200; // milliseconds
+
+	/**
+	 * How often to look at the files when no watch service is available.
+	 */
+	private static final long POLL_INTERVAL = 5000; // milliseconds
+
+	private final File passwd;
+	private final File permissions;
+	private volatile SecuritySnapshot current;
+	private volatile boolean stopped;
+	private WatchService watcher;
+	private Thread thread;
+
+	/**
+	 * Reads both files right away.
+	 *
+	 * @param passwd
+	 *            The user file.
+	 * @param permissions
+	 *            The rule file.
+	 */
+	public SecurityWatcher(File passwd, File permissions) {
+		this.passwd = passwd.getAbsoluteFile();
+		this.permissions = permissions.getAbsoluteFile();
+		this.current = SecuritySnapshot.load(this.passwd, this.permissions);
+	}
+
+	/**
+	 * Gets the users and rules currently in effect. A request should fetch
+	 * this once and use it throughout.
+	 *
+	 * @return the current snapshot
+	 */
+	public SecuritySnapshot get() {
+		return current;
+	}
+
+	/**
+	 * Starts watching the files.
+	 */
+	public synchronized void start() {
+		try {
+			watcher = passwd.toPath().getFileSystem().newWatchService();
+			register(passwd.getParentFile().toPath());
+			if (!permissions.getParentFile().equals(passwd.getParentFile()))
+				register(permissions.getParentFile().toPath());
+		} catch (IOException e) {
+			// Polling will do
+			e.printStackTrace();
+			watcher = null;
+		}
+
+		thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				processEvents();
+			}
+		}, "security-watcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Stops watching the files.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (watcher != null) {
+			try {
+				watcher.close();
+			} catch (IOException e) {
+			}
+		}
+		if (thread != null)
+			thread.interrupt();
+	}
+
+	/**
+	 * Reads the files again if they changed since the current snapshot was
+	 * built, and publishes the result.
+	 */
+	public synchronized void reload() {
+		if (!passwd.exists() || !permissions.exists()
+				|| !current.isOutdated(passwd, permissions))
+			return;
+
+		SecuritySnapshot snapshot = SecuritySnapshot.load(passwd, permissions);
+		current = snapshot;
+		System.out.println("Reloaded " + snapshot.getUserCount()
+				+ " users and access rules");
+	}
+
+	private void register(Path dir) throws IOException {
+		dir.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+				StandardWatchEventKinds.ENTRY_MODIFY);
+	}
+
+	private void processEvents() {
+		while (!stopped) {
+			try {
+				if (watcher == null) {
+					Thread.sleep(POLL_INTERVAL);
+				} else {
+					WatchKey key = watcher.take();
+					boolean relevant = false;
+					for (WatchEvent<?> event : key.pollEvents()) {
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW
+								|| isWatched((Path) event.context()))
+							relevant = true;
+					}
+					key.reset();
+					if (!relevant)
+						continue;
+
+					// Let the writer finish, then drop what piled up meanwhile
+					Thread.sleep(SETTLE_TIME);
+					while ((key = watcher.poll(0, TimeUnit.MILLISECONDS)) != null) {
+						key.pollEvents();
+						key.reset();
+					}
+				}
+			} catch (InterruptedException | ClosedWatchServiceException e) {
+				return;
+			}
+
+			try {
+				reload();
+			} catch (RuntimeException e) {
+				// Keep the old snapshot and keep watching
+				e.printStackTrace();
+			}
+		}
+	}
+
+	private boolean isWatched(Path name) {
+		String fileName = name.getFileName().toString();
+		return fileName.equals(passwd.getName())
+				|| fileName.equals(permissions.getName());
+	}
+}
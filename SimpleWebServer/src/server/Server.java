@@ -21,10 +21,7 @@
 
 package server;
 
-import gui.WebServer;
-
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -36,15 +33,13 @@ import java.nio.channels.ServerSocketChannel;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.Scanner;
-import java.util.concurrent.Executor;
-import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
-import javax.swing.DefaultListModel;
+import protocol.MimeTypes;
 
 /**
  * This represents a welcoming server for the incoming TCP request from a HTTP
@@ -55,27 +50,40 @@ import javax.swing.DefaultListModel;
 public class Server implements Runnable {
 	private String rootDirectory;
 	private int port;
-	private boolean stop;
+	private volatile boolean stop;
 	private ServerSocketChannel welcomeSocketChannel;
 	private ServerSocket welcomeSocket;
 
-	private long connections;
-	private long serviceTime;
+	private ServerMetrics metrics;
+	private MetricsExporter metricsExporter;
+	private AccessLog accessLog;
+	private SlowRequestLog slowRequestLog;
+	private volatile ThreadPoolExecutor executor;
 
-	private WebServer window;
+	private volatile ServerConfig config;
+	private ServerListener listener;
 
-	private static final int NTHREDS = 10;
+	/**
+	 * The files read from the working directory, which is also the default
+	 * root.
+	 */
+	private static final String[] SETTINGS_FILES = { "passwd.txt",
+			"permissions.txt", "mime.txt", "cache.txt" };
 
-	private int sampleSize = 5;
-	private long timeThreshold = 100;
 	private List<ServerConnection> latestConnections;
-	private DefaultListModel<InetAddress> blackList;
-	private DefaultListModel<InetAddress> whiteList;
+	private AddressList blackList;
+	private AddressList whiteList;
 
-	private Map<String, String> passwd;
-	private Map<String, String[]> permissions;
+	private SecurityWatcher security;
 
-	private Selector selector;
+	private volatile Selector selector;
+
+	private FileMetadataTree metadataTree;
+	private ResourceResolver resolver;
+	private ContentCompressor compressor;
+	private StaticPrecompressor precompressor;
+	private CachePolicy cachePolicy;
+	private DigestAuthenticator authenticator;
 
 	private class ServerConnection {
 		Date connTime;
@@ -128,99 +136,107 @@ public class Server implements Runnable {
 	}
 
 	public int getSampleSize() {
-		return sampleSize;
+		return config.getSampleSize();
 	}
 
 	public void setSampleSize(int sampleSize) {
-		this.sampleSize = sampleSize;
+		set(ServerConfig.SAMPLE_SIZE, Integer.toString(sampleSize));
 	}
 
 	public long getTimeThreshold() {
-		return timeThreshold;
+		return config.getTimeThreshold();
 	}
 
 	public void setTimeThreshold(long timeThreshold) {
-		this.timeThreshold = timeThreshold;
+		set(ServerConfig.TIME_THRESHOLD, Long.toString(timeThreshold));
 	}
 
-	public void setWhitelist(DefaultListModel<InetAddress> wl) {
-		whiteList = wl;
+	/**
+	 * Changes a single setting, the same way a reload does.
+	 */
+	private synchronized void set(String key, String value) {
+		config = config.with(key + "=" + value);
+	}
+
+	/**
+	 * Gets the clients that are never rate limited.
+	 * 
+	 * @return the white list
+	 */
+	public AddressList getWhitelist() {
+		return whiteList;
 	}
 
-	public void setBlacklist(DefaultListModel<InetAddress> wl) {
-		blackList = wl;
+	/**
+	 * Gets the clients that are turned away.
+	 * 
+	 * @return the black list
+	 */
+	public AddressList getBlacklist() {
+		return blackList;
 	}
 
 	/**
 	 * @param rootDirectory
 	 * @param port
+	 * @param listener
+	 *            Told if the server fails, may be null.
+	 */
+	public Server(String rootDirectory, int port, ServerListener listener) {
+		this(ServerConfig.defaults().with(ServerConfig.ROOT + "=" + rootDirectory,
+				ServerConfig.PORT + "=" + port), listener);
+	}
+
+	/**
+	 * @param config
+	 *            The settings to run with.
+	 * @param listener
+	 *            Told if the server fails, may be null.
 	 */
-	public Server(String rootDirectory, int port, WebServer window) {
-		this.rootDirectory = rootDirectory;
-		this.port = port;
+	public Server(ServerConfig config, ServerListener listener) {
+		this.config = config;
+		this.rootDirectory = config.getRootDirectory();
+		this.port = config.getPort();
 		this.stop = false;
-		this.connections = 0;
-		this.serviceTime = 0;
-		this.window = window;
+		this.metrics = new ServerMetrics();
+		this.metricsExporter = new MetricsExporter(this);
+		this.accessLog = new AccessLog(config.getAccessLogFile(),
+				config.getAccessLogCapacity(), config.getAccessLogMaxLength(),
+				config.getAccessLogKeep(), AccessLog.Overflow.DROP);
+		this.slowRequestLog = new SlowRequestLog(config.getSlowLogFile());
+		this.listener = listener;
+		this.metadataTree = new FileMetadataTree(rootDirectory,
+				config.getRescanInterval());
+		// Logs are not content, even if they are kept below the root
+		this.metadataTree.exclude(config.getAccessLogFile());
+		this.metadataTree.exclude(config.getSlowLogFile());
+		// Neither are the files the server is set up by
+		for (String name : SETTINGS_FILES)
+			this.metadataTree.exclude(new File(name));
+		this.resolver = new ResourceResolver(metadataTree,
+				config.getResolverCacheSize(), config.getNegativeCacheSize());
+		this.compressor = new ContentCompressor(metadataTree,
+				config.getCompressionCacheSize());
+		this.precompressor = new StaticPrecompressor(metadataTree,
+				config.getPrecompressDirectory());
 
 		this.latestConnections = new ArrayList<ServerConnection>();
-		blackList = new DefaultListModel<InetAddress>();
-		whiteList = new DefaultListModel<InetAddress>();
-
-		// read the users
-		passwd = new HashMap<String, String>();
-		File usersFile = new File("passwd.txt");
-		if (usersFile.exists()) {
-			Scanner s;
-			try {
-				s = new Scanner(usersFile);
-				s.useDelimiter("\n");
-
-				while (s.hasNext()) {
-					String line = s.next();
-					String[] splitLine = line.split(" ");
-					if (!passwd.containsKey(splitLine[0])) {
-						passwd.put(splitLine[0], splitLine[1]);
-					}
-				}
-
-				s.close();
-
-			} catch (FileNotFoundException e) {
-				// shouldn't get here
-				e.printStackTrace();
-			}
-		} else {
-			System.out.println("No passwd file found");
-		}
-
-		// read the permissions
-		permissions = new HashMap<String, String[]>();
-		File permFile = new File("permissions.txt");
-		if (usersFile.exists()) {
-			Scanner s;
-			try {
-				s = new Scanner(permFile);
-
-				while (s.hasNext()) {
-					String line = s.next();
-					String[] splitLine = line.split(":");
-					if (!permissions.containsKey(splitLine[0])) {
-						String[] users = splitLine[1].split(",");
-						permissions.put(splitLine[0], users);
-					}
-				}
+		blackList = new AddressList();
+		whiteList = new AddressList();
+		blackList.set(config.getBlacklist());
+		whiteList.set(config.getWhitelist());
+
+		// read the users and permissions, and whenever they change
+		security = new SecurityWatcher(new File("passwd.txt"), new File(
+				"permissions.txt"));
+		authenticator = new DigestAuthenticator();
+		
+		// read the extra mime types, if any
+		MimeTypes.load(new File("mime.txt"));
 
-				s.close();
+		// read the caching rules, if any
+		cachePolicy = CachePolicy.load(new File("cache.txt"));
 
-			} catch (FileNotFoundException e) {
-				// shouldn't get here
-				e.printStackTrace();
-			}
-		} else {
-			System.out.println("No permissions file found");
-		}
-		
 		//make sure 401 and 403 are present
 		if (!new File(rootDirectory + "/403.html").exists()){
 			File f403 = new File (rootDirectory + "/403.html");
@@ -245,18 +261,86 @@ public class Server implements Runnable {
 
 	}
 	
-	public String getPasswd(String uname){
-		if (passwd.containsKey(uname))
-			return passwd.get(uname);
-		return "";
+	/**
+	 * Gets the users and access rules currently in effect. They are replaced
+	 * as a whole when their files change, so a request should fetch them
+	 * once.
+	 * 
+	 * @return the current snapshot
+	 */
+	public SecuritySnapshot getSecurity() {
+		return security.get();
 	}
-	
-	public String[] getUsersForUri(String uri){
-		return permissions.get(uri);
+
+	/**
+	 * Gets the settings currently in effect. A reload replaces them as a
+	 * whole, so a request should fetch them once and go by them throughout.
+	 * 
+	 * @return the configuration
+	 */
+	public ServerConfig getConfig() {
+		return config;
 	}
-	
-	public boolean needsPermission(String uri){
-		return permissions.containsKey(uri);
+
+	/**
+	 * Applies a new configuration while serving. The settings requests go by
+	 * are published in one step, by replacing the configuration returned by
+	 * {@link #getConfig()}; requests already running finish with the old
+	 * ones. The pool, the caches and the address lists are adjusted after
+	 * that: caches that shrink drop their least recently used entries, and a
+	 * smaller pool lets its surplus workers go once they are idle. Keys in
+	 * {@link ServerConfig#RESTART_KEYS} are left as they are.
+	 * 
+	 * @param next
+	 *            The new settings.
+	 * @return the keys that changed but need a restart
+	 */
+	public synchronized List<String> reconfigure(ServerConfig next) {
+		ServerConfig previous = this.config;
+		List<String> changes = next.getChanges(previous);
+		List<String> restart = new ArrayList<String>();
+		for (String key : changes) {
+			if (ServerConfig.RESTART_KEYS.contains(key))
+				restart.add(key);
+		}
+		changes.removeAll(restart);
+		if (changes.isEmpty())
+			return restart;
+		// What is in effect, not what is waiting for a restart
+		for (String key : restart)
+			next = next.with(key + "=" + previous.get(key));
+		this.config = next;
+
+		ThreadPoolExecutor executor = this.executor;
+		int workers = next.getWorkers();
+		if (executor != null && workers != executor.getCorePoolSize()) {
+			// The core size may never exceed the maximum
+			if (workers > executor.getMaximumPoolSize()) {
+				executor.setMaximumPoolSize(workers);
+				executor.setCorePoolSize(workers);
+			} else {
+				executor.setCorePoolSize(workers);
+				executor.setMaximumPoolSize(workers);
+			}
+		}
+		resolver.setCapacity(next.getResolverCacheSize());
+		compressor.setBudget(next.getCompressionCacheSize());
+		// Addresses the rate limiter listed itself stay listed
+		update(whiteList, previous.getWhitelist(), next.getWhitelist());
+		update(blackList, previous.getBlacklist(), next.getBlacklist());
+
+		System.out.println("Reconfigured " + changes);
+		return restart;
+	}
+
+	private static void update(AddressList list, List<InetAddress> before,
+			List<InetAddress> after) {
+		for (InetAddress address : before) {
+			if (!after.contains(address))
+				list.remove(address);
+		}
+		for (InetAddress address : after)
+			list.add(address);
 	}
 
 	/**
@@ -269,46 +353,176 @@ public class Server implements Runnable {
 	}
 
 	/**
-	 * Gets the port number for this web server.
+	 * Gets the resolver mapping request URIs to files below the root
+	 * directory.
 	 * 
-	 * @return the port
+	 * @return the resolver
 	 */
-	public int getPort() {
-		return port;
+	public ResourceResolver getResourceResolver() {
+		return resolver;
 	}
 
 	/**
-	 * Returns connections serviced per second. Synchronized to be used in
-	 * threaded environment.
+	 * Gets the producer of compressed variants of the served files.
 	 * 
-	 * @return
+	 * @return the compressor
 	 */
-	public synchronized double getServiceRate() {
-		if (this.serviceTime == 0)
-			return Long.MIN_VALUE;
-		double rate = this.connections / (double) this.serviceTime;
-		rate = rate * 1000;
-		return rate;
+	public ContentCompressor getContentCompressor() {
+		return compressor;
 	}
 
 	/**
-	 * Increments number of connection by the supplied value. Synchronized to be
-	 * used in threaded environment.
+	 * Gets the keeper of the gzip copies of the served files.
 	 * 
-	 * @param value
+	 * @return the precompressor
 	 */
-	public synchronized void incrementConnections(long value) {
-		this.connections += value;
+	public StaticPrecompressor getPrecompressor() {
+		return precompressor;
 	}
 
 	/**
-	 * Increments the service time by the supplied value. Synchronized to be
-	 * used in threaded environment.
+	 * Gets the checker of the credentials sent with requests.
 	 * 
-	 * @param value
+	 * @return the authenticator
 	 */
-	public synchronized void incrementServiceTime(long value) {
-		this.serviceTime += value;
+	public DigestAuthenticator getAuthenticator() {
+		return authenticator;
+	}
+
+	/**
+	 * Gets the largest request body accepted for an upload.
+	 * 
+	 * @return the limit in bytes
+	 */
+	public long getMaxUploadLength() {
+		return config.getMaxUploadLength();
+	}
+
+	/**
+	 * Gets the renderer of the metrics in the Prometheus format.
+	 * 
+	 * @return the exporter
+	 */
+	public MetricsExporter getMetricsExporter() {
+		return metricsExporter;
+	}
+
+	/**
+	 * Gets the log every request is written to.
+	 * 
+	 * @return the access log
+	 */
+	public AccessLog getAccessLog() {
+		return accessLog;
+	}
+
+	/**
+	 * Gets the log slow requests are written to with their phases. Its
+	 * threshold and sample rate can be changed while running.
+	 * 
+	 * @return the slow request log
+	 */
+	public SlowRequestLog getSlowRequestLog() {
+		return slowRequestLog;
+	}
+
+	/**
+	 * Gets the request path the metrics are served at.
+	 * 
+	 * @return the path, or null if the metrics are not served
+	 */
+	public String getMetricsPath() {
+		return config.getMetricsPath();
+	}
+
+	/**
+	 * Sets the request path the metrics are served at. Nothing is served from
+	 * the document root at that path then.
+	 * 
+	 * @param metricsPath
+	 *            The path, starting with a slash, or null to not serve the
+	 *            metrics at all.
+	 */
+	public void setMetricsPath(String metricsPath) {
+		set(ServerConfig.METRICS_PATH, metricsPath == null ? "" : metricsPath);
+	}
+
+	/**
+	 * Gets the number of requests waiting for a worker.
+	 * 
+	 * @return the queue length, 0 before the server runs
+	 */
+	public int getQueueDepth() {
+		ThreadPoolExecutor executor = this.executor;
+		return executor == null ? 0 : executor.getQueue().size();
+	}
+
+	/**
+	 * Gets the number of workers busy with a request.
+	 * 
+	 * @return the number of busy workers
+	 */
+	public int getActiveWorkers() {
+		ThreadPoolExecutor executor = this.executor;
+		return executor == null ? 0 : executor.getActiveCount();
+	}
+
+	/**
+	 * Gets the number of client connections currently open.
+	 * 
+	 * @return the number of connections
+	 */
+	public int getOpenConnections() {
+		Selector selector = this.selector;
+		if (selector == null || !selector.isOpen())
+			return 0;
+		// Not counting the welcome socket
+		return Math.max(selector.keys().size() - 1, 0);
+	}
+
+	/**
+	 * Gets the rules for the caching header fields of file responses.
+	 * 
+	 * @return the cache policy
+	 */
+	public CachePolicy getCachePolicy() {
+		return cachePolicy;
+	}
+
+	/**
+	 * Gets the in-memory metadata of everything below the root directory.
+	 * 
+	 * @return the metadata tree
+	 */
+	public FileMetadataTree getMetadataTree() {
+		return metadataTree;
+	}
+
+	/**
+	 * Gets the port number for this web server.
+	 * 
+	 * @return the port
+	 */
+	public int getPort() {
+		return port;
+	}
+
+	/**
+	 * Returns connections serviced per second of service time.
+	 * 
+	 * @return the rate
+	 */
+	public double getServiceRate() {
+		return metrics.getServiceRate();
+	}
+
+	/**
+	 * Gets the request counters and latency histograms.
+	 * 
+	 * @return the metrics
+	 */
+	public ServerMetrics getMetrics() {
+		return metrics;
 	}
 
 	/**
@@ -318,7 +532,17 @@ public class Server implements Runnable {
 	 */
 	public void run() {
 		try {
-			final Executor executor = Executors.newFixedThreadPool(NTHREDS);
+			// Know the content before the first request comes in
+			this.metadataTree.start();
+			this.precompressor.start();
+			this.security.start();
+			this.accessLog.start();
+			this.slowRequestLog.start();
+
+			// A fixed pool whose queue we can look at
+			int workers = config.getWorkers();
+			this.executor = new ThreadPoolExecutor(workers, workers, 0,
+					TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
 			this.welcomeSocketChannel = ServerSocketChannel.open();
 			this.welcomeSocketChannel.bind(new InetSocketAddress(port));
 			this.selector = Selector.open();
@@ -350,6 +574,12 @@ public class Server implements Runnable {
 						SocketChannel channel = ((ServerSocketChannel) selKey
 								.channel()).accept();
 						if (channel != null) {
+							RequestEvents.Accept event = new RequestEvents.Accept();
+							if (event.shouldCommit()) {
+								event.client = channel.socket().getInetAddress()
+										.getHostAddress();
+								event.commit();
+							}
 							channel.configureBlocking(false);
 							channel.register(this.selector,
 									SelectionKey.OP_READ);
@@ -359,14 +589,29 @@ public class Server implements Runnable {
 						SocketChannel channel = (SocketChannel) selKey
 								.channel();
 						InetAddress address = channel.socket().getInetAddress();
-						if (whiteList.contains(address)
-								|| (!blackList.contains(address) && allowConnection(new ServerConnection(
-										new Date(), address)))) {
+						RequestEvents.RateLimit event = new RequestEvents.RateLimit();
+						event.begin();
+						boolean whitelisted = whiteList.contains(address);
+						boolean allowed = whitelisted
+								|| (!blackList.contains(address) && allowConnection(address));
+						event.end();
+						if (event.shouldCommit()) {
+							event.client = address.getHostAddress();
+							event.whitelisted = whitelisted;
+							event.allowed = allowed;
+							event.commit();
+						}
+						if (allowed) {
 							int readyOps = selKey.readyOps();
 							selKey.interestOps(selKey.interestOps() & ~readyOps);
 							ConnectionHandler handler = new ConnectionHandler(
 									this, selKey);
 							executor.execute(new Thread(handler));
+						} else {
+							// Turned away, do not let it wake us up again
+							metrics.recordRejected(address);
+							selKey.cancel();
+							channel.close();
 						}
 					}
 				}
@@ -398,7 +643,10 @@ public class Server implements Runnable {
 			// }
 			this.welcomeSocket.close();
 		} catch (Exception e) {
-			window.showSocketException(e);
+			if (listener != null)
+				listener.serverFailed(e);
+			else
+				e.printStackTrace();
 		}
 	}
 
@@ -411,6 +659,18 @@ public class Server implements Runnable {
 
 		// Set the stop flag to be true
 		this.stop = true;
+		this.metadataTree.stop();
+		this.precompressor.stop();
+		this.security.stop();
+		if (this.executor != null)
+			this.executor.shutdown();
+		this.accessLog.stop();
+		this.slowRequestLog.stop();
+		// Without a display the local host name may not resolve, so wake up
+		// the selector directly first
+		Selector selector = this.selector;
+		if (selector != null)
+			selector.wakeup();
 		try {
 			// This will force welcomeSocket to come out of the blocked accept()
 			// method
@@ -435,28 +695,41 @@ public class Server implements Runnable {
 	}
 
 	public void whitelistAddress(InetAddress addr) {
-		whiteList.addElement(addr);
-		blackList.removeElement(addr);
+		whiteList.add(addr);
+		blackList.remove(addr);
 		System.out.println("Address " + addr.getHostAddress()
 				+ " has been whitelisted");
 	}
 
 	public void blacklistAddress(InetAddress addr) {
-		blackList.addElement(addr);
-		whiteList.removeElement(addr);
+		blackList.add(addr);
+		whiteList.remove(addr);
 		System.out.println("Address " + addr.getHostAddress()
 				+ " has been blacklisted");
 	}
 
 	public void unBlacklistAddress(InetAddress addr) {
-		blackList.removeElement(addr);
+		blackList.remove(addr);
 	}
 
 	public void unWhitelistAddress(InetAddress addr) {
-		blackList.removeElement(addr);
+		whiteList.remove(addr);
+	}
+
+	/**
+	 * Runs a new connection from a client past the rate limiter. Only called
+	 * from the selector thread, and from the benchmarks.
+	 * 
+	 * @return false if the client connects too often and was blacklisted
+	 */
+	boolean allowConnection(InetAddress address) {
+		return allowConnection(new ServerConnection(new Date(), address));
 	}
 
 	private boolean allowConnection(ServerConnection c) {
+		ServerConfig settings = config;
+		int sampleSize = settings.getSampleSize();
+		long timeThreshold = settings.getTimeThreshold();
 		long timeSum = 0;
 		int numConnections = 1;
 		int indexToRemove = -1;
@@ -492,13 +765,14 @@ public class Server implements Runnable {
 		// calculate average time between connection
 		long avg = timeSum / (long) numConnections;
 
-		System.out.println("Average time between connections: " + avg
-				+ " milliseconds");
-
 		/* possibly add a minimum number of connections to get a good sample */
 		if (numConnections != 1 && avg <= timeThreshold) {
-			// limit connections from this ip
-			blacklistAddress(c.address);
+			// limit connections from this ip, without holding up the
+			// selector on the console
+			blackList.add(c.address);
+			whiteList.remove(c.address);
+			accessLog.log(c.address, null, null, null, null, 0, -1, null,
+					null, 0);
 
 			return false;
 		}
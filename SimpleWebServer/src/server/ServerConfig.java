@@ -0,0 +1,453 @@
+/*
+ * ServerConfig.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Scanner;
+
+import protocol.ChannelIO;
+
+/**
+ * The settings a {@link Server} is started with. A configuration file holds
+ * one <tt>key = value</tt> pair per line, lines starting with # are
+ * comments:
+ *
+ * <pre>
+ * port = 8080
+ * root = /srv/www
+ * workers = 16
+ * compression.cache.size = 67108864
+ * whitelist = 127.0.0.1, 10.0.0.1
+ * </pre>
+ *
+ * The same pairs can be given on the command line, where they override the
+ * file. A key left out keeps its default, which is what the server used
+ * before it could be configured. A configuration never changes once made;
+ * a running server is reconfigured by handing it a new one, which it
+ * applies except for the keys in {@link #RESTART_KEYS}. Requests take the
+ * configuration of the server once, when they start, and go by it until
+ * they are done, so a request never sees half of a reload.
+ */
+public class ServerConfig {
+	public static final String PORT = "port";
+	public static final String ROOT = "root";
+	public static final String WORKERS = "workers";
+	public static final String RESOLVER_CACHE_SIZE = "resolver.cache.size";
+	public static final String NEGATIVE_CACHE_SIZE = "negative.cache.size";
+	public static final String RESCAN_INTERVAL = "rescan.interval";
+	public static final String COMPRESSION_CACHE_SIZE = "compression.cache.size";
+	public static final String MAX_COMPRESSED_LENGTH = "compression.max.length";
+	public static final String PRECOMPRESS_DIRECTORY = "precompress.dir";
+	public static final String MAX_UPLOAD_LENGTH = "upload.max.length";
+	public static final String ACCESS_LOG = "access.log";
+	public static final String ACCESS_LOG_CAPACITY = "access.log.capacity";
+	public static final String ACCESS_LOG_MAX_LENGTH = "access.log.max.length";
+	public static final String ACCESS_LOG_KEEP = "access.log.keep";
+	public static final String SLOW_LOG = "slow.log";
+	public static final String SLOW_THRESHOLD = "slow.threshold";
+	public static final String SLOW_SAMPLE_RATE = "slow.sample.rate";
+	public static final String METRICS_PATH = "metrics.path";
+	public static final String SAMPLE_SIZE = "ratelimit.sample.size";
+	public static final String TIME_THRESHOLD = "ratelimit.threshold";
+	public static final String WHITELIST = "whitelist";
+	public static final String BLACKLIST = "blacklist";
+	public static final String READ_TIMEOUT = "read.timeout";
+	public static final String WRITE_TIMEOUT = "write.timeout";
+
+	/**
+	 * The keys that only take effect when the server is started.
+	 */
+	public static final List<String> RESTART_KEYS = Collections
+			.unmodifiableList(Arrays.asList(PORT, ROOT, NEGATIVE_CACHE_SIZE,
+					RESCAN_INTERVAL, PRECOMPRESS_DIRECTORY, ACCESS_LOG,
+					ACCESS_LOG_CAPACITY, ACCESS_LOG_MAX_LENGTH,
+					ACCESS_LOG_KEEP, SLOW_LOG));
+
+	/**
+	 * Where the logs go unless configured: not the working directory, which
+	 * is also the default root, so the logs are never served.
+	 */
+	private static final File LOG_DIRECTORY = new File(
+			System.getProperty("user.home"), ".sws");
+
+	private static final Map<String, String> DEFAULTS = new LinkedHashMap<String, String>();
+	static {
+		DEFAULTS.put(PORT, "8080");
+		DEFAULTS.put(ROOT, System.getProperty("user.dir"));
+		DEFAULTS.put(WORKERS, "10");
+		DEFAULTS.put(RESOLVER_CACHE_SIZE, "4096");
+		DEFAULTS.put(NEGATIVE_CACHE_SIZE, "8192");
+		DEFAULTS.put(RESCAN_INTERVAL, "60"); // seconds
+		DEFAULTS.put(COMPRESSION_CACHE_SIZE, Long.toString(32 * 1024 * 1024));
+		DEFAULTS.put(MAX_COMPRESSED_LENGTH, Long.toString(8 * 1024 * 1024));
+		DEFAULTS.put(PRECOMPRESS_DIRECTORY, ""); // under the log directory
+		DEFAULTS.put(MAX_UPLOAD_LENGTH, Long.toString(64 * 1024 * 1024));
+		DEFAULTS.put(ACCESS_LOG, new File(LOG_DIRECTORY, "access.log").getPath());
+		DEFAULTS.put(ACCESS_LOG_CAPACITY, "8192"); // records
+		DEFAULTS.put(ACCESS_LOG_MAX_LENGTH, Long.toString(16 * 1024 * 1024));
+		DEFAULTS.put(ACCESS_LOG_KEEP, "5"); // rotated files
+		DEFAULTS.put(SLOW_LOG, new File(LOG_DIRECTORY, "slow.log").getPath());
+		DEFAULTS.put(SLOW_THRESHOLD, "500"); // ms
+		DEFAULTS.put(SLOW_SAMPLE_RATE, "0");
+		DEFAULTS.put(METRICS_PATH, ""); // not served
+		DEFAULTS.put(SAMPLE_SIZE, "5");
+		DEFAULTS.put(TIME_THRESHOLD, "100"); // ms
+		DEFAULTS.put(WHITELIST, "");
+		DEFAULTS.put(BLACKLIST, "");
+		DEFAULTS.put(READ_TIMEOUT, Long.toString(ChannelIO.READ_TIMEOUT)); // ms
+		DEFAULTS.put(WRITE_TIMEOUT, Long.toString(ChannelIO.WRITE_TIMEOUT)); // ms
+	}
+
+	private final Map<String, String> values;
+	// Parsed once, since requests read them all the time
+	private final Map<String, Number> numbers;
+
+	private ServerConfig(Map<String, String> values) {
+		this.values = Collections.unmodifiableMap(values);
+		this.numbers = new HashMap<String, Number>();
+		for (Map.Entry<String, String> entry : values.entrySet()) {
+			try {
+				numbers.put(entry.getKey(), Long.valueOf(entry.getValue()));
+			} catch (NumberFormatException e) {
+				try {
+					numbers.put(entry.getKey(),
+							Double.valueOf(entry.getValue()));
+				} catch (NumberFormatException notNumber) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the configuration with every key at its default
+	 */
+	public static ServerConfig defaults() {
+		return new ServerConfig(new LinkedHashMap<String, String>(DEFAULTS));
+	}
+
+	/**
+	 * Reads a configuration file over the defaults.
+	 *
+	 * @param file
+	 *            The file, which need not exist.
+	 * @return the configuration
+	 */
+	public static ServerConfig load(File file) {
+		return defaults().with(file);
+	}
+
+	/**
+	 * Reads a configuration file over this configuration.
+	 *
+	 * @param file
+	 *            The file, which need not exist.
+	 * @return the new configuration
+	 */
+	public ServerConfig with(File file) {
+		if (!file.exists())
+			return this;
+
+		Map<String, String> changed = new LinkedHashMap<String, String>(values);
+		try {
+			Scanner s = new Scanner(file);
+			while (s.hasNextLine()) {
+				String line = s.nextLine().trim();
+				if (line.isEmpty() || line.charAt(0) == '#')
+					continue;
+				put(changed, line);
+			}
+			s.close();
+		} catch (FileNotFoundException e) {
+			// shouldn't get here
+			e.printStackTrace();
+		}
+		return new ServerConfig(changed);
+	}
+
+	/**
+	 * Applies <tt>key=value</tt> pairs over this configuration.
+	 *
+	 * @param pairs
+	 *            The pairs, such as the command line arguments.
+	 * @return the new configuration
+	 */
+	public ServerConfig with(String... pairs) {
+		Map<String, String> changed = new LinkedHashMap<String, String>(values);
+		for (String pair : pairs)
+			put(changed, pair);
+		return new ServerConfig(changed);
+	}
+
+	private static void put(Map<String, String> values, String line) {
+		int equals = line.indexOf('=');
+		String key = equals < 0 ? null : line.substring(0, equals).trim();
+		String value = equals < 0 ? null : line.substring(equals + 1).trim();
+		if (key == null || !DEFAULTS.containsKey(key) || !isValid(key, value)) {
+			System.err.println("Ignoring configuration: " + line);
+			return;
+		}
+		values.put(key, value);
+	}
+
+	private static boolean isValid(String key, String value) {
+		try {
+			if (key.equals(ROOT) || key.equals(ACCESS_LOG)
+					|| key.equals(SLOW_LOG))
+				return !value.isEmpty();
+			if (key.equals(PRECOMPRESS_DIRECTORY))
+				return true;
+			if (key.equals(METRICS_PATH))
+				return value.isEmpty() || value.startsWith("/");
+			if (key.equals(WHITELIST) || key.equals(BLACKLIST)) {
+				parseAddresses(value);
+				return true;
+			}
+			if (key.equals(SLOW_SAMPLE_RATE)) {
+				double rate = Double.parseDouble(value);
+				return rate >= 0 && rate <= 1;
+			}
+			if (key.equals(PORT)) {
+				int port = Integer.parseInt(value);
+				return port > 0 && port < 65536;
+			}
+			if (key.equals(SLOW_THRESHOLD) || key.equals(ACCESS_LOG_KEEP))
+				return Long.parseLong(value) >= 0;
+			if (key.equals(TIME_THRESHOLD)) {
+				Long.parseLong(value);
+				return true;
+			}
+			return Long.parseLong(value) > 0;
+		} catch (NumberFormatException e) {
+			return false;
+		} catch (UnknownHostException e) {
+			return false;
+		}
+	}
+
+	private static List<InetAddress> parseAddresses(String value)
+			throws UnknownHostException {
+		List<InetAddress> addresses = new ArrayList<InetAddress>();
+		for (String address : value.split("[,\\s]+")) {
+			if (!address.isEmpty())
+				addresses.add(InetAddress.getByName(address));
+		}
+		return addresses;
+	}
+
+	/**
+	 * Gets the keys whose values differ from another configuration.
+	 *
+	 * @param other
+	 *            The configuration to compare with.
+	 * @return the keys, in the order of the defaults
+	 */
+	public List<String> getChanges(ServerConfig other) {
+		List<String> changes = new ArrayList<String>();
+		for (String key : DEFAULTS.keySet()) {
+			if (!values.get(key).equals(other.values.get(key)))
+				changes.add(key);
+		}
+		return changes;
+	}
+
+	/**
+	 * Gets the value of a key, as written.
+	 *
+	 * @param key
+	 *            One of the key constants.
+	 * @return the value
+	 */
+	public String get(String key) {
+		return values.get(key);
+	}
+
+	private long getLong(String key) {
+		return numbers.get(key).longValue();
+	}
+
+	private int getInt(String key) {
+		return (int) Math.min(Integer.MAX_VALUE, getLong(key));
+	}
+
+	private List<InetAddress> getAddresses(String key) {
+		try {
+			return parseAddresses(values.get(key));
+		} catch (UnknownHostException e) {
+			// checked when read
+			return new ArrayList<InetAddress>();
+		}
+	}
+
+	public int getPort() {
+		return getInt(PORT);
+	}
+
+	public String getRootDirectory() {
+		return values.get(ROOT);
+	}
+
+	/**
+	 * @return the number of threads serving requests
+	 */
+	public int getWorkers() {
+		return getInt(WORKERS);
+	}
+
+	public int getResolverCacheSize() {
+		return getInt(RESOLVER_CACHE_SIZE);
+	}
+
+	public int getNegativeCacheSize() {
+		return getInt(NEGATIVE_CACHE_SIZE);
+	}
+
+	/**
+	 * @return seconds between full rescans of the root directory
+	 */
+	public long getRescanInterval() {
+		return getLong(RESCAN_INTERVAL);
+	}
+
+	/**
+	 * @return bytes of compressed variants held in memory
+	 */
+	public long getCompressionCacheSize() {
+		return getLong(COMPRESSION_CACHE_SIZE);
+	}
+
+	public long getMaxCompressedLength() {
+		return getLong(MAX_COMPRESSED_LENGTH);
+	}
+
+	/**
+	 * @return where the gzip siblings of the files go. Unless configured,
+	 *         that is a directory of their own under the log directory, one
+	 *         per root, so the siblings are not served as files of the root.
+	 */
+	public File getPrecompressDirectory() {
+		String directory = values.get(PRECOMPRESS_DIRECTORY);
+		if (!directory.isEmpty())
+			return new File(directory);
+		String root = new File(getRootDirectory()).getAbsolutePath();
+		return new File(new File(LOG_DIRECTORY, "gz"),
+				Integer.toHexString(root.hashCode()));
+	}
+
+	public long getMaxUploadLength() {
+		return getLong(MAX_UPLOAD_LENGTH);
+	}
+
+	public File getAccessLogFile() {
+		return new File(values.get(ACCESS_LOG));
+	}
+
+	public int getAccessLogCapacity() {
+		return getInt(ACCESS_LOG_CAPACITY);
+	}
+
+	public long getAccessLogMaxLength() {
+		return getLong(ACCESS_LOG_MAX_LENGTH);
+	}
+
+	public int getAccessLogKeep() {
+		return getInt(ACCESS_LOG_KEEP);
+	}
+
+	public File getSlowLogFile() {
+		return new File(values.get(SLOW_LOG));
+	}
+
+	/**
+	 * @return milliseconds from which on a request is logged as slow
+	 */
+	public long getSlowThreshold() {
+		return getLong(SLOW_THRESHOLD);
+	}
+
+	public double getSlowSampleRate() {
+		return numbers.get(SLOW_SAMPLE_RATE).doubleValue();
+	}
+
+	/**
+	 * @return the path the metrics are served at, or null for none
+	 */
+	public String getMetricsPath() {
+		String path = values.get(METRICS_PATH);
+		return path.isEmpty() ? null : path;
+	}
+
+	/**
+	 * @return the number of connections the rate limiter averages over
+	 */
+	public int getSampleSize() {
+		return getInt(SAMPLE_SIZE);
+	}
+
+	/**
+	 * @return the average milliseconds between connections below which a
+	 *         client is blacklisted, negative to never blacklist
+	 */
+	public long getTimeThreshold() {
+		return getLong(TIME_THRESHOLD);
+	}
+
+	public List<InetAddress> getWhitelist() {
+		return getAddresses(WHITELIST);
+	}
+
+	public List<InetAddress> getBlacklist() {
+		return getAddresses(BLACKLIST);
+	}
+
+	/**
+	 * @return milliseconds to wait for more data from a client
+	 */
+	public long getReadTimeout() {
+		return getLong(READ_TIMEOUT);
+	}
+
+	/**
+	 * @return milliseconds to wait for a client to take more data
+	 */
+	public long getWriteTimeout() {
+		return getLong(WRITE_TIMEOUT);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> entry : values.entrySet())
+			sb.append(entry.getKey()).append(" = ").append(entry.getValue())
+					.append('\n');
+		return sb.toString();
+	}
+}
@@ -0,0 +1,36 @@
+/*
+ * ServerListener.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+/**
+ * Told by a {@link Server} about what happens to it, so that the server
+ * does not need to know whether it runs in a window or headless.
+ */
+public interface ServerListener {
+	/**
+	 * The server could not listen on its port, or stopped for an error.
+	 *
+	 * @param e
+	 *            What went wrong.
+	 */
+	void serverFailed(Exception e);
+}
@@ -0,0 +1,336 @@
+/*
+ * ServerMetrics.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.net.InetAddress;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the requests served and how long they took. Every worker records
+ * into striped counters and lock-free histograms, so collecting the
+ * statistics never makes workers wait for each other.
+ *
+ * Latencies are kept for all requests since the start, and per status
+ * class (2xx, 3xx, ...) and size class of the response for the last minute
+ * and the last five minutes. The windows are built from slices of
+ * {@link #SLICE} each, a window covers its length plus the slice in
+ * progress.
+ */
+public class ServerMetrics {
+	public static final long ONE_MINUTE = TimeUnit.MINUTES.toNanos(1);
+	public static final long FIVE_MINUTES = TimeUnit.MINUTES.toNanos(5);
+
+	/**
+	 * The granularity of the rolling windows.
+	 */
+	public static final long SLICE = TimeUnit.SECONDS.toNanos(15);
+	private static final int SLICES = (int) (FIVE_MINUTES / SLICE) + 1;
+
+	/**
+	 * Labels of the status classes; a status that is not 1xx to 5xx, or no
+	 * response at all, counts as "other".
+	 */
+	public static final String[] STATUS_CLASSES = { "other", "1xx", "2xx",
+			"3xx", "4xx", "5xx" };
+
+	/**
+	 * Labels of the size classes, the upper bound of the response body length
+	 * in each, with the bodies of unknown length last.
+	 */
+	public static final String[] SIZE_CLASSES = { "0", "1k", "64k", "1m",
+			"inf", "streamed" };
+	private static final long[] SIZE_BOUNDS = { 0, 1024, 64 * 1024,
+			1024 * 1024, Long.MAX_VALUE };
+
+	/**
+	 * The most client addresses rejections are counted for; connections from
+	 * others are only counted in the total.
+	 */
+	private static final int MAX_REJECTED_ADDRESSES = 1024;
+
+	/**
+	 * The latencies of one status and size class, in a ring of slices.
+	 */
+	private static class RollingHistogram {
+		final LatencyHistogram[] slices = new LatencyHistogram[SLICES];
+		final AtomicLong[] epochs = new AtomicLong[SLICES];
+
+		RollingHistogram() {
+			for (int i = 0; i < SLICES; i++) {
+				slices[i] = new LatencyHistogram();
+				epochs[i] = new AtomicLong(-1);
+			}
+		}
+
+		void record(long epoch, long nanos) {
+			int slot = (int) (epoch % SLICES);
+			long old = epochs[slot].get();
+			// The first to get here in a new slice clears what is left of the
+			// slice a full turn ago; a value recorded meanwhile may get lost
+			if (old != epoch && epochs[slot].compareAndSet(old, epoch))
+				slices[slot].reset();
+			slices[slot].record(nanos);
+		}
+
+		void addTo(LatencyHistogram sum, long epoch, long window) {
+			long oldest = epoch - window / SLICE;
+			for (int i = 0; i < SLICES; i++) {
+				long e = epochs[i].get();
+				if (e >= oldest && e <= epoch)
+					sum.add(slices[i]);
+			}
+		}
+	}
+
+	private final long origin;
+	private final LongAdder requests;
+	private final LongAdder serviceTime;
+	private final LongAdder bytes;
+	private final LongAdder[] byStatus;
+	private final LongAdder rejected;
+	private final ConcurrentHashMap<InetAddress, LongAdder> rejectedBy;
+	private final LatencyHistogram latency;
+	private final AtomicReferenceArray<RollingHistogram> latencies;
+
+	public ServerMetrics() {
+		this.origin = System.nanoTime();
+		this.requests = new LongAdder();
+		this.serviceTime = new LongAdder();
+		this.bytes = new LongAdder();
+		this.byStatus = new LongAdder[STATUS_CLASSES.length];
+		for (int i = 0; i < byStatus.length; i++)
+			byStatus[i] = new LongAdder();
+		this.rejected = new LongAdder();
+		this.rejectedBy = new ConcurrentHashMap<InetAddress, LongAdder>();
+		this.latency = new LatencyHistogram();
+		this.latencies = new AtomicReferenceArray<RollingHistogram>(
+				STATUS_CLASSES.length * SIZE_CLASSES.length);
+	}
+
+	/**
+	 * Records a request that was served.
+	 *
+	 * @param status
+	 *            The response status, or 0 if no response was sent.
+	 * @param length
+	 *            The length of the response body, or -1 if not known up
+	 *            front.
+	 * @param nanos
+	 *            How long it took.
+	 */
+	public void record(int status, long length, long nanos) {
+		int statusClass = statusClass(status);
+		requests.increment();
+		serviceTime.add(nanos);
+		byStatus[statusClass].increment();
+		if (length > 0)
+			bytes.add(length);
+		latency.record(nanos);
+
+		int cell = statusClass * SIZE_CLASSES.length + sizeClass(length);
+		RollingHistogram histogram = latencies.get(cell);
+		if (histogram == null) {
+			// Most combinations never occur, so only make those that do
+			latencies.compareAndSet(cell, null, new RollingHistogram());
+			histogram = latencies.get(cell);
+		}
+		histogram.record(epoch(), nanos);
+	}
+
+	/**
+	 * Records a connection turned away by the rate limiter.
+	 *
+	 * @param address
+	 *            The client address.
+	 */
+	public void recordRejected(InetAddress address) {
+		rejected.increment();
+		LongAdder count = rejectedBy.get(address);
+		if (count == null && rejectedBy.size() < MAX_REJECTED_ADDRESSES) {
+			rejectedBy.putIfAbsent(address, new LongAdder());
+			count = rejectedBy.get(address);
+		}
+		if (count != null)
+			count.increment();
+	}
+
+	/**
+	 * Gets the client addresses turned away most often since the start.
+	 *
+	 * @param n
+	 *            How many to get at most.
+	 * @return the addresses with their counts, most rejected first
+	 */
+	public List<Map.Entry<InetAddress, Long>> getTopRejected(int n) {
+		List<Map.Entry<InetAddress, Long>> top = new ArrayList<Map.Entry<InetAddress, Long>>();
+		for (Map.Entry<InetAddress, LongAdder> entry : rejectedBy.entrySet()) {
+			top.add(new AbstractMap.SimpleImmutableEntry<InetAddress, Long>(
+					entry.getKey(), entry.getValue().sum()));
+		}
+		Collections.sort(top, new Comparator<Map.Entry<InetAddress, Long>>() {
+			@Override
+			public int compare(Map.Entry<InetAddress, Long> a,
+					Map.Entry<InetAddress, Long> b) {
+				return Long.compare(b.getValue(), a.getValue());
+			}
+		});
+		return top.size() > n ? top.subList(0, n) : top;
+	}
+
+	/**
+	 * Gets the number of connections turned away by the rate limiter since
+	 * the start.
+	 *
+	 * @return the count
+	 */
+	public long getRejected() {
+		return rejected.sum();
+	}
+
+	/**
+	 * Gets the number of requests served since the start.
+	 *
+	 * @return the count
+	 */
+	public long getRequests() {
+		return requests.sum();
+	}
+
+	/**
+	 * Gets the number of requests served since the start with a status in
+	 * one class.
+	 *
+	 * @param statusClass
+	 *            An index into {@link #STATUS_CLASSES}.
+	 * @return the count
+	 */
+	public long getRequests(int statusClass) {
+		return byStatus[statusClass].sum();
+	}
+
+	/**
+	 * Gets the total time spent serving requests since the start.
+	 *
+	 * @return the time in nanoseconds
+	 */
+	public long getServiceTime() {
+		return serviceTime.sum();
+	}
+
+	/**
+	 * Gets the number of body bytes of known length sent since the start.
+	 *
+	 * @return the byte count
+	 */
+	public long getBytes() {
+		return bytes.sum();
+	}
+
+	/**
+	 * Gets the latencies of all requests since the start.
+	 *
+	 * @return the histogram itself, still being recorded into
+	 */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	/**
+	 * Gets the latencies of all requests in a window.
+	 *
+	 * @param window
+	 *            {@link #ONE_MINUTE} or {@link #FIVE_MINUTES}.
+	 * @return a histogram of its own
+	 */
+	public LatencyHistogram getLatency(long window) {
+		LatencyHistogram sum = new LatencyHistogram();
+		long epoch = epoch();
+		for (int i = 0; i < latencies.length(); i++) {
+			RollingHistogram histogram = latencies.get(i);
+			if (histogram != null)
+				histogram.addTo(sum, epoch, window);
+		}
+		return sum;
+	}
+
+	/**
+	 * Gets the latencies of the requests in one status and size class in a
+	 * window.
+	 *
+	 * @param window
+	 *            {@link #ONE_MINUTE} or {@link #FIVE_MINUTES}.
+	 * @param statusClass
+	 *            An index into {@link #STATUS_CLASSES}.
+	 * @param sizeClass
+	 *            An index into {@link #SIZE_CLASSES}.
+	 * @return a histogram of its own, empty if there were no such requests
+	 */
+	public LatencyHistogram getLatency(long window, int statusClass,
+			int sizeClass) {
+		LatencyHistogram sum = new LatencyHistogram();
+		RollingHistogram histogram = latencies.get(statusClass
+				* SIZE_CLASSES.length + sizeClass);
+		if (histogram != null)
+			histogram.addTo(sum, epoch(), window);
+		return sum;
+	}
+
+	/**
+	 * Returns requests serviced per second of service time since the start.
+	 *
+	 * @return the rate, or {@link Long#MIN_VALUE} before the first request
+	 */
+	public double getServiceRate() {
+		long time = serviceTime.sum();
+		if (time == 0)
+			return Long.MIN_VALUE;
+		return requests.sum() / (double) time * TimeUnit.SECONDS.toNanos(1);
+	}
+
+	private long epoch() {
+		return (System.nanoTime() - origin) / SLICE;
+	}
+
+	private static int statusClass(int status) {
+		int statusClass = status / 100;
+		return statusClass >= 1 && statusClass <= 5 ? statusClass : 0;
+	}
+
+	private static int sizeClass(long length) {
+		if (length < 0)
+			return SIZE_CLASSES.length - 1;
+		int i = 0;
+		while (length > SIZE_BOUNDS[i])
+			i++;
+		return i;
+	}
+}
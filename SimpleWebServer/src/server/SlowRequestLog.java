@@ -0,0 +1,236 @@
+/*
+ * SlowRequestLog.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Writes requests that took longer than a threshold to a log file of their
+ * own, with the time spent in every phase, so that a slow request shows
+ * whether it waited for a worker, for the disk or for the network:
+ *
+ * <pre>
+ * [18/Oct/2013:21:36:04 +0000] slow 812.40ms queue=0.02 parse=0.31 resolve=0.01 auth=0.00 cache=2.10 body=0.00 write=809.96 127.0.0.1 "GET /big.bin HTTP/1.1" 200 5242880
+ * </pre>
+ *
+ * A share of the other requests can be written as well, marked
+ * <tt>sample</tt>, to compare against. Entries are handed to a background
+ * thread through a bounded queue; if it is full the entry is dropped rather
+ * than holding up the request.
+ */
+public class SlowRequestLog {
+	private static final int QUEUE_LENGTH = 1024;
+
+	/**
+	 * What is known about a request once it is done.
+	 */
+	private static class Entry {
+		final long time;
+		final boolean slow;
+		final long[] phases;
+		final long total;
+		final String client;
+		final String requestLine;
+		final int status;
+		final long length;
+
+		Entry(boolean slow, RequestTimer timer, String client,
+				String requestLine, int status, long length) {
+			this.time = System.currentTimeMillis();
+			this.slow = slow;
+			this.phases = new long[RequestTimer.PHASES.length];
+			for (int i = 0; i < phases.length; i++)
+				phases[i] = timer.get(i);
+			this.total = timer.getTotal();
+			this.client = client;
+			this.requestLine = requestLine;
+			this.status = status;
+			this.length = length;
+		}
+	}
+
+	private final File file;
+	private final BlockingQueue<Entry> queue;
+	private final LongAdder dropped;
+	private volatile boolean stopped;
+	private Thread writer;
+
+	/**
+	 * @param file
+	 *            The log file, appended to.
+	 */
+	public SlowRequestLog(File file) {
+		this.file = file;
+		this.queue = new ArrayBlockingQueue<Entry>(QUEUE_LENGTH);
+		this.dropped = new LongAdder();
+	}
+
+	/**
+	 * Gets the number of entries lost because the writer fell behind.
+	 *
+	 * @return the count since the start
+	 */
+	public long getDropped() {
+		return dropped.sum();
+	}
+
+	/**
+	 * Starts the writer thread.
+	 */
+	public synchronized void start() {
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "slow-request-log");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes out what is queued and stops the writer thread.
+	 */
+	public synchronized void stop() {
+		stopped = true;
+		if (writer == null)
+			return;
+		writer.interrupt();
+		try {
+			writer.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Logs a finished request if it was slow, or if it is picked as a
+	 * sample.
+	 *
+	 * @param timer
+	 *            The phases of the request.
+	 * @param threshold
+	 *            Requests taking at least this many milliseconds are logged.
+	 * @param sampleRate
+	 *            The share of the other requests to log, 0 for none.
+	 * @param client
+	 *            The client address.
+	 * @param requestLine
+	 *            The request line, or null if it could not be read.
+	 * @param status
+	 *            The response status.
+	 * @param length
+	 *            The length of the response body, or -1 if streamed.
+	 */
+	public void log(RequestTimer timer, long threshold, double sampleRate,
+			String client, String requestLine, int status, long length) {
+		boolean slow = timer.getTotal() >= TimeUnit.MILLISECONDS
+				.toNanos(threshold);
+		if (!slow
+				&& (sampleRate == 0 || ThreadLocalRandom.current()
+						.nextDouble() >= sampleRate))
+			return;
+
+		if (!queue.offer(new Entry(slow, timer, client, requestLine, status,
+				length)))
+			dropped.increment();
+	}
+
+	private void drain() {
+		SimpleDateFormat dateFormat = new SimpleDateFormat(
+				"dd/MMM/yyyy:HH:mm:ss Z", Locale.US);
+		List<Entry> batch = new ArrayList<Entry>();
+		Writer out = null;
+		while (true) {
+			try {
+				Entry entry = queue.poll(1, TimeUnit.SECONDS);
+				if (entry == null) {
+					if (stopped)
+						break;
+					continue;
+				}
+				batch.add(entry);
+			} catch (InterruptedException e) {
+				if (queue.isEmpty())
+					break;
+			}
+			queue.drainTo(batch);
+
+			try {
+				if (out == null) {
+					File directory = file.getAbsoluteFile().getParentFile();
+					if (directory != null)
+						directory.mkdirs();
+					out = new BufferedWriter(new FileWriter(file, true));
+				}
+				for (Entry entry : batch)
+					out.write(format(entry, dateFormat));
+				out.flush();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			batch.clear();
+		}
+
+		try {
+			if (out != null)
+				out.close();
+		} catch (IOException e) {
+		}
+	}
+
+	private static String format(Entry entry, SimpleDateFormat dateFormat) {
+		StringBuilder sb = new StringBuilder(256);
+		sb.append('[').append(dateFormat.format(new Date(entry.time)))
+				.append("] ").append(entry.slow ? "slow " : "sample ")
+				.append(millis(entry.total)).append("ms");
+		for (int i = 0; i < entry.phases.length; i++) {
+			sb.append(' ').append(RequestTimer.PHASES[i]).append('=')
+					.append(millis(entry.phases[i]));
+		}
+		sb.append(' ').append(entry.client == null ? "-" : entry.client)
+				.append(" \"");
+		AccessLog.escape(sb, entry.requestLine);
+		sb.append("\" ").append(entry.status).append(' ')
+				.append(entry.length < 0 ? "-" : Long.toString(entry.length))
+				.append('\n');
+		return sb.toString();
+	}
+
+	private static String millis(long nanos) {
+		return String.format(Locale.US, "%.2f", nanos / 1e6);
+	}
+}
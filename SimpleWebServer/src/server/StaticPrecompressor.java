@@ -0,0 +1,259 @@
+/*
+ * StaticPrecompressor.java
+ * Oct 18, 2026
+ *
+ * Simple Web Server (SWS) for CSSE 477
+ * 
+ * Copyright (C) 2012 Chandan Raj Rupakheti
+ * 
+ * This program is free software: you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public License 
+ * as published by the Free Software Foundation, either 
+ * version 3 of the License, or any later version.
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/lgpl.html>.
+ * 
+ */
+ 
+package server;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import protocol.Protocol;
+
+/**
+ * Writes a gzip compressed sibling, e.g. <tt>site.css.gz</tt>, for every
+ * compressible file in the document root, at the best compression level. The
+ * siblings go into a directory of their own that mirrors the root, or next
+ * to the files, where they can also be fetched by name and are then guarded
+ * by the access rules of their files. The whole root is processed on a
+ * fork-join pool at startup, and a file is compressed again whenever the
+ * metadata tree reports that it changed.
+ *
+ * A sibling is given the modification time of the file it was made from, so
+ * a sibling is fresh exactly when the two times are equal. Stale siblings
+ * are never served, the request path compresses on the fly instead until the
+ * sibling is rewritten. The attributes of the siblings are kept in memory,
+ * so the request path does not touch the disk to find them.
+ */
+public class StaticPrecompressor {
+	public static final String SUFFIX = ".gz";
+
+	/**
+	 * Files per task below which a task is not split any further.
+	 */
+	private static final int BATCH = 16;
+
+	private final FileMetadataTree tree;
+	private final Path directory;
+	private final Map<String, FileMetadata> siblings;
+	private final ForkJoinPool pool;
+
+	/**
+	 * @param tree
+	 *            The metadata of the document root.
+	 * @param directory
+	 *            Where to write the siblings, or null to write them next to
+	 *            the files.
+	 */
+	public StaticPrecompressor(FileMetadataTree tree, File directory) {
+		this.tree = tree;
+		this.directory = directory == null ? tree.getRoot() : directory
+				.toPath().toAbsolutePath().normalize();
+		this.siblings = new ConcurrentHashMap<String, FileMetadata>();
+		this.pool = new ForkJoinPool();
+
+		tree.addListener(new FileMetadataTree.Listener() {
+			@Override
+			public void contentChanged(String path) {
+				if (path == null) {
+					start();
+					return;
+				}
+				// A sibling that was removed or touched is made again
+				if (path.endsWith(SUFFIX))
+					path = path.substring(0, path.length() - SUFFIX.length());
+				if (!pool.isShutdown())
+					pool.execute(new CompressTask(new String[] { path }, 0, 1));
+			}
+		});
+	}
+
+	/**
+	 * Compresses everything in the tree that is not fresh already. Returns
+	 * immediately, the work is done in the background.
+	 */
+	public void start() {
+		if (pool.isShutdown())
+			return;
+		try {
+			Files.createDirectories(directory);
+		} catch (IOException e) {
+			// Reported below
+		}
+		if (!Files.isWritable(directory)) {
+			System.err.println("Not precompressing, cannot write to "
+					+ directory);
+			return;
+		}
+		List<String> paths = tree.paths();
+		pool.execute(new CompressTask(paths.toArray(new String[paths.size()]),
+				0, paths.size()));
+	}
+
+	public void stop() {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Gets the fresh precompressed sibling of a resource.
+	 *
+	 * @param resource
+	 *            An existing resource.
+	 * @return The metadata of the sibling, or null if there is no fresh one.
+	 */
+	public FileMetadata precompressed(Resource resource) {
+		FileMetadata sibling = siblings.get(resource.getFilePath());
+		if (sibling == null
+				|| sibling.lastModified() != resource.lastModified())
+			return null;
+		return sibling;
+	}
+
+	/**
+	 * Maps a request path to its sibling. This does not access the disk.
+	 *
+	 * @param path
+	 *            The request path of the file, starting with a slash.
+	 * @return the sibling, which need not exist
+	 */
+	public File toFile(String path) {
+		return directory.resolve(path.substring(1) + SUFFIX).toFile();
+	}
+
+	/**
+	 * Splits the paths in halves until they are few enough to compress.
+	 */
+	private class CompressTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final String[] paths;
+		private final int from;
+		private final int to;
+
+		CompressTask(String[] paths, int from, int to) {
+			this.paths = paths;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= BATCH) {
+				for (int i = from; i < to; i++) {
+					try {
+						precompress(paths[i]);
+					} catch (IOException e) {
+						// Skip it, the file is compressed on the fly instead
+						e.printStackTrace();
+					}
+				}
+				return;
+			}
+			int middle = (from + to) >>> 1;
+			invokeAll(new CompressTask(paths, from, middle), new CompressTask(
+					paths, middle, to));
+		}
+	}
+
+	private void precompress(String path) throws IOException {
+		if (path.endsWith(SUFFIX))
+			return;
+		File target = toFile(path);
+
+		FileMetadata metadata = tree.get(path);
+		if (metadata == null) {
+			// The source is gone, so must be its sibling, or whatever was
+			// below it
+			siblings.remove(path);
+			Iterator<String> it = siblings.keySet().iterator();
+			while (it.hasNext()) {
+				if (it.next().startsWith(path + "/"))
+					it.remove();
+			}
+			if (ContentCompressor.isCompressible(path, Long.MAX_VALUE))
+				Files.deleteIfExists(target.toPath());
+			return;
+		}
+		if (metadata.isDirectory()
+				|| !ContentCompressor.isCompressible(path, metadata.length()))
+			return;
+		FileMetadata sibling = siblings.get(path);
+		if (sibling == null && target.exists())
+			sibling = readSibling(target);
+		if (sibling != null && sibling.lastModified() == metadata.lastModified()) {
+			// e.g. made before a restart
+			siblings.put(path, sibling);
+			return;
+		}
+		siblings.remove(path);
+
+		File source = tree.toFile(path);
+		Files.createDirectories(target.toPath().getParent());
+		// Hidden, and distinct per thread in case a path is queued twice
+		Path temp = target.toPath().resolveSibling(
+				"." + target.getName() + "." + Thread.currentThread().getId());
+		try {
+			try (InputStream in = Files.newInputStream(source.toPath());
+					OutputStream out = new GZIPOutputStream(
+							Files.newOutputStream(temp), Protocol.CHUNK_LENGTH) {
+						{
+							def.setLevel(Deflater.BEST_COMPRESSION);
+						}
+					}) {
+				byte[] buffer = new byte[Protocol.CHUNK_LENGTH];
+				int bytesRead;
+				while ((bytesRead = in.read(buffer)) != -1)
+					out.write(buffer, 0, bytesRead);
+			}
+
+			// Not worth sending if it did not get noticeably smaller
+			if (Files.size(temp) > metadata.length() * 9 / 10)
+				return;
+
+			Files.setLastModifiedTime(temp,
+					FileTime.fromMillis(metadata.lastModified()));
+			Files.move(temp, target.toPath(),
+					StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+		siblings.put(path, readSibling(target));
+	}
+
+	private static FileMetadata readSibling(File sibling) throws IOException {
+		return FileMetadata.of(Files.readAttributes(sibling.toPath(),
+				BasicFileAttributes.class));
+	}
+}